@@ -0,0 +1,69 @@
+#!/usr/bin/env bash
+# Compares platform-thread and virtual-thread request handling on the expense read endpoints.
+#
+# Requires: a built jar (./mvnw package), a reachable Postgres configured as in application.properties,
+# curl and hey (https://github.com/rakyll/hey).
+#
+# Usage: loadtest/compare-thread-modes.sh [duration] [concurrency]
+set -euo pipefail
+
+DURATION="${1:-30s}"
+CONCURRENCY="${2:-200}"
+PORT="${PORT:-8089}"
+BASE_URL="http://localhost:${PORT}"
+JAR="$(ls target/expense-tracker-*.jar | head -n 1)"
+USERNAME="loadtest"
+PASSWORD="loadtest-password"
+
+ENDPOINTS=(
+    "/api/expenses?size=50"
+    "/api/expenses/date-range?start=2020-01-01&end=2030-12-31"
+    "/api/expenses/summary/category?start=2020-01-01&end=2030-12-31"
+    "/api/category/all"
+)
+
+start_app() {
+    java -jar "$JAR" --server.port="$PORT" --spring.threads.virtual.enabled="$1" >"target/loadtest-$2.log" 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 1 60); do
+        if curl -sf "${BASE_URL}/index.html" >/dev/null; then
+            return
+        fi
+        sleep 1
+    done
+    echo "Application did not start, see target/loadtest-$2.log" >&2
+    exit 1
+}
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+}
+
+login() {
+    curl -s -o /dev/null -X POST "${BASE_URL}/api/auth/register" -H 'Content-Type: application/json' \
+        -d "{\"username\":\"${USERNAME}\",\"password\":\"${PASSWORD}\",\"role\":\"USER\"}"
+    curl -sf -X POST "${BASE_URL}/api/auth/login" -H 'Content-Type: application/json' \
+        -d "{\"username\":\"${USERNAME}\",\"password\":\"${PASSWORD}\"}" \
+        | sed -n 's/.*"accessToken":"\([^"]*\)".*/\1/p'
+}
+
+run_mode() {
+    local mode="$1" virtual="$2"
+    start_app "$virtual" "$mode"
+    local token
+    token="$(login)"
+    for endpoint in "${ENDPOINTS[@]}"; do
+        local report
+        report="$(hey -z "$DURATION" -c "$CONCURRENCY" -H "Authorization: Bearer ${token}" "${BASE_URL}${endpoint}")"
+        printf '%-10s %-70s %10s %10s %10s\n' "$mode" "$endpoint" \
+            "$(awk '/Requests\/sec/ {print $2}' <<<"$report")" \
+            "$(awk '/50% in/ {print $3}' <<<"$report")" \
+            "$(awk '/99% in/ {print $3}' <<<"$report")"
+    done
+    stop_app
+}
+
+printf '%-10s %-70s %10s %10s %10s\n' "mode" "endpoint" "req/s" "p50 (s)" "p99 (s)"
+run_mode platform false
+run_mode virtual true
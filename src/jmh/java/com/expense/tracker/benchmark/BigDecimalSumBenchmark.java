@@ -0,0 +1,54 @@
+package com.expense.tracker.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BigDecimalSumBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private List<BigDecimal> amounts;
+
+    @Setup
+    public void setUp() {
+        amounts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            amounts.add(BigDecimal.valueOf(i % 5_000 + 10, 2));
+        }
+    }
+
+    @Benchmark
+    public BigDecimal streamReduce() {
+        return amounts.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public BigDecimal loop() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal amount : amounts) {
+            total = total.add(amount);
+        }
+        return total;
+    }
+
+    // Amounts have scale 2, so they can be summed exactly as unscaled longs
+    @Benchmark
+    public BigDecimal unscaledLongSum() {
+        long total = 0;
+        for (BigDecimal amount : amounts) {
+            total += amount.unscaledValue().longValueExact();
+        }
+        return BigDecimal.valueOf(total, 2);
+    }
+}
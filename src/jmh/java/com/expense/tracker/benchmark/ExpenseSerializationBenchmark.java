@@ -0,0 +1,52 @@
+package com.expense.tracker.benchmark;
+
+import com.expense.tracker.dto.ExpenseDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseSerializationBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<ExpenseDTO> expenses;
+
+    @Setup
+    public void setUp() {
+        // Same date handling as the ObjectMapper Spring Boot configures for the controllers
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        expenses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            expenses.add(new ExpenseDTO(
+                    (long) i,
+                    BigDecimal.valueOf(i % 5_000, 2),
+                    "Expense " + i,
+                    LocalDate.of(2024, 1, 1).plusDays(i % 365),
+                    i % 20
+            ));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeExpenses() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(expenses);
+    }
+}
@@ -0,0 +1,50 @@
+package com.expense.tracker.service;
+
+import com.expense.tracker.dto.ExpenseDTO;
+import com.expense.tracker.model.Category;
+import com.expense.tracker.model.Expense;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseMappingBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private List<Expense> expenses;
+
+    @Setup
+    public void setUp() {
+        Category category = new Category("Groceries", "benchmark");
+        category.setId(1);
+        expenses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Expense expense = new Expense(
+                    BigDecimal.valueOf(i % 5_000, 2),
+                    "Expense " + i,
+                    LocalDate.of(2024, 1, 1).plusDays(i % 365),
+                    category
+            );
+            expense.setId((long) i);
+            expenses.add(expense);
+        }
+    }
+
+    @Benchmark
+    public List<ExpenseDTO> toExpenseDTOs() {
+        return expenses.stream()
+                .map(ExpenseService::toExpenseDTO)
+                .toList();
+    }
+}
@@ -0,0 +1,43 @@
+package com.expense.tracker.service;
+
+import com.expense.tracker.config.JwtProperties;
+import com.expense.tracker.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private JwtService jwtService;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(new JwtProperties(null, null, Duration.ofMinutes(15), Duration.ofDays(14)));
+        user = new User("benchmark", "password", "USER");
+        token = jwtService.generateAccessToken(user.getUsername());
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateAccessToken(user.getUsername());
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return jwtService.isTokenValid(token, user);
+    }
+}
@@ -0,0 +1,88 @@
+package com.expense.tracker.loadtest;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Fills the schema created by Flyway with categories and expenses spread over the last three years. Every owner
+ * gets its own categories, and the expenses are shared out evenly between the owners.
+ */
+public class DataSeeder {
+
+    private static final int BATCH_SIZE = 5_000;
+
+    private final DataSource dataSource;
+
+    public DataSeeder(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public Map<String, List<Integer>> seed(LoadTestSettings settings, List<String> owners) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            Map<String, List<Integer>> categoryIds = seedCategories(connection, settings.categories(), owners);
+            seedExpenses(connection, settings.expenses(), owners, categoryIds);
+            connection.commit();
+            return categoryIds;
+        }
+    }
+
+    private Map<String, List<Integer>> seedCategories(Connection connection, int count, List<String> owners)
+            throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO categories (id, name, owner) VALUES (nextval('categories_seq'), ?, ?)")) {
+            for (String owner : owners) {
+                for (int i = 0; i < count; i++) {
+                    insert.setString(1, "Category " + i);
+                    insert.setString(2, owner);
+                    insert.addBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+
+        Map<String, List<Integer>> ids = new HashMap<>();
+        try (Statement select = connection.createStatement();
+             ResultSet result = select.executeQuery("SELECT owner, id FROM categories ORDER BY id")) {
+            while (result.next()) {
+                ids.computeIfAbsent(result.getString(1), owner -> new ArrayList<>()).add(result.getInt(2));
+            }
+        }
+        return ids;
+    }
+
+    private void seedExpenses(Connection connection, int count, List<String> owners,
+                              Map<String, List<Integer>> categoryIds) throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate today = LocalDate.now();
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO expenses (id, amount, description, expense_date, category_id, owner) " +
+                "VALUES (nextval('expenses_seq'), ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < count; i++) {
+                String owner = owners.get(i % owners.size());
+                List<Integer> ownerCategories = categoryIds.get(owner);
+                insert.setBigDecimal(1, BigDecimal.valueOf(random.nextLong(100, 500_000), 2));
+                insert.setString(2, "Seeded expense " + i);
+                insert.setObject(3, today.minusDays(random.nextInt(3 * 365)));
+                insert.setInt(4, ownerCategories.get(random.nextInt(ownerCategories.size())));
+                insert.setString(5, owner);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+}
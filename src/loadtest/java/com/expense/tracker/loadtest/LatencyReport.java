@@ -0,0 +1,54 @@
+package com.expense.tracker.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects per-endpoint latencies from all workers and prints throughput and percentiles.
+ * Each worker records into its own instance; instances are merged once the run is over.
+ */
+public class LatencyReport {
+
+    private final Map<String, List<Long>> latenciesNanos = new TreeMap<>();
+    private final Map<String, Integer> failures = new TreeMap<>();
+
+    public void record(String endpoint, long nanos, boolean success) {
+        latenciesNanos.computeIfAbsent(endpoint, key -> new ArrayList<>()).add(nanos);
+        if (!success) {
+            failures.merge(endpoint, 1, Integer::sum);
+        }
+    }
+
+    public void merge(LatencyReport other) {
+        other.latenciesNanos.forEach((endpoint, samples) ->
+                latenciesNanos.computeIfAbsent(endpoint, key -> new ArrayList<>()).addAll(samples));
+        other.failures.forEach((endpoint, count) -> failures.merge(endpoint, count, Integer::sum));
+    }
+
+    public void print(Duration elapsed) {
+        System.out.printf("%-45s %9s %9s %8s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        latenciesNanos.forEach((endpoint, samples) -> {
+            long[] sorted = samples.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            System.out.printf("%-45s %9d %9d %8.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint,
+                    sorted.length,
+                    failures.getOrDefault(endpoint, 0),
+                    sorted.length / (elapsed.toMillis() / 1000.0),
+                    percentileMillis(sorted, 0.50),
+                    percentileMillis(sorted, 0.90),
+                    percentileMillis(sorted, 0.99),
+                    sorted[sorted.length - 1] / 1_000_000.0);
+        });
+    }
+
+    private double percentileMillis(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+}
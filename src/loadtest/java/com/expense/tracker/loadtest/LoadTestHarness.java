@@ -0,0 +1,100 @@
+package com.expense.tracker.loadtest;
+
+import com.expense.tracker.ExpenseTrackerApplication;
+import com.expense.tracker.service.ExpenseRollupService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Boots the application against an embedded Postgres, seeds it and reports latency per endpoint.
+ * Runs offline once the Maven dependencies (including the Postgres binaries) are in the local repository:
+ *
+ * <pre>./mvnw -Ploadtest -DskipTests compile exec:java -Dloadtest.expenses=1000000 -Dloadtest.duration=120s</pre>
+ */
+public class LoadTestHarness {
+
+    private static final String PASSWORD = "load-test-password";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        System.out.println("Load test settings: " + settings);
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+             ConfigurableApplicationContext app = SpringApplication.run(ExpenseTrackerApplication.class,
+                     "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                     "--spring.datasource.username=postgres",
+                     "--spring.datasource.password=postgres",
+                     "--spring.jpa.show-sql=false",
+                     "--server.port=0")) {
+
+            String baseUrl = "http://localhost:" + app.getEnvironment().getRequiredProperty("local.server.port");
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+
+            Map<String, String> tokens = registerUsers(client, baseUrl, settings.users());
+            Map<String, List<Integer>> categoryIds = new DataSeeder(postgres.getPostgresDatabase())
+                    .seed(settings, List.copyOf(tokens.keySet()));
+            List<TrafficDriver.Credentials> users = tokens.entrySet().stream()
+                    .map(user -> new TrafficDriver.Credentials(
+                            user.getKey(), PASSWORD, user.getValue(), categoryIds.get(user.getKey())))
+                    .toList();
+            // Seeded rows bypassed the service layer, so bring the monthly rollup in line with them
+            app.getBean(ExpenseRollupService.class).rebuild();
+
+            TrafficDriver driver = new TrafficDriver(client, baseUrl, users);
+            System.out.println("Warming up for " + settings.warmup());
+            driver.run(settings.concurrency(), settings.warmup());
+
+            System.out.println("Measuring for " + settings.duration() + " with " + settings.concurrency() + " workers");
+            Instant start = Instant.now();
+            LatencyReport report = driver.run(settings.concurrency(), settings.duration());
+            report.print(Duration.between(start, Instant.now()));
+        }
+    }
+
+    // Access token per username, in registration order
+    private static Map<String, String> registerUsers(HttpClient client, String baseUrl, int count)
+            throws IOException, InterruptedException {
+        Map<String, String> tokens = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String username = "load" + i;
+            String credentials = "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"";
+            send(client, json(baseUrl + "/api/auth/register", credentials + ",\"role\":\"USER\"}"));
+            String token = MAPPER.readTree(send(client, json(baseUrl + "/api/auth/login", credentials + "}")))
+                    .get("accessToken").asText();
+            tokens.put(username, token);
+        }
+        return tokens;
+    }
+
+    private static HttpRequest json(String url, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static String send(HttpClient client, HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException(request.uri() + " answered " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+}
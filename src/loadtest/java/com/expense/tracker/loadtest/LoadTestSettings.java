@@ -0,0 +1,27 @@
+package com.expense.tracker.loadtest;
+
+import java.time.Duration;
+
+/**
+ * Load test knobs, read from system properties so they can be passed as -D flags to Maven.
+ */
+public record LoadTestSettings(
+        int users,
+        int categories,
+        int expenses,
+        int concurrency,
+        Duration warmup,
+        Duration duration
+) {
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                Integer.getInteger("loadtest.users", 10),
+                Integer.getInteger("loadtest.categories", 20),
+                Integer.getInteger("loadtest.expenses", 100_000),
+                Integer.getInteger("loadtest.concurrency", 64),
+                Duration.parse("PT" + System.getProperty("loadtest.warmup", "10s")),
+                Duration.parse("PT" + System.getProperty("loadtest.duration", "60s"))
+        );
+    }
+}
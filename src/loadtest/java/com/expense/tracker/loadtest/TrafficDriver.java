@@ -0,0 +1,157 @@
+package com.expense.tracker.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Drives a weighted mix of authentication, expense and category calls from virtual-thread workers,
+ * each looping request after request until the run's deadline.
+ */
+public class TrafficDriver {
+
+    public record Credentials(String username, String password, String token, List<Integer> categoryIds) {}
+
+    private record Operation(String name, int weight, Function<ThreadLocalRandom, HttpRequest> request) {}
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final List<Credentials> users;
+    private final List<Operation> operations;
+    private final int totalWeight;
+
+    public TrafficDriver(HttpClient client, String baseUrl, List<Credentials> users) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.users = users;
+        this.operations = List.of(
+                new Operation("POST api/auth/login", 2, random -> {
+                    Credentials user = randomUser(random);
+                    return post("/api/auth/login", null,
+                            "{\"username\":\"" + user.username() + "\",\"password\":\"" + user.password() + "\"}");
+                }),
+                new Operation("POST api/expenses", 15, random -> {
+                    Credentials user = randomUser(random);
+                    return post("/api/expenses", user.token(),
+                            "{\"amount\":" + random.nextInt(1, 5_000) + ".50" +
+                            ",\"description\":\"Load test " + UUID.randomUUID() + "\"" +
+                            ",\"date\":\"" + randomDate(random) + "\"" +
+                            ",\"categoryId\":" + randomCategory(user, random) + "}");
+                }),
+                new Operation("GET api/expenses?size=50", 25, random ->
+                        get("/api/expenses?size=50", randomUser(random).token())),
+                new Operation("GET api/expenses/date-range (7 days)", 15, random -> {
+                    LocalDate start = randomDate(random);
+                    return get("/api/expenses/date-range?start=" + start + "&end=" + start.plusDays(7),
+                            randomUser(random).token());
+                }),
+                new Operation("GET api/expenses/category/{id}", 5, random -> {
+                    Credentials user = randomUser(random);
+                    return get("/api/expenses/category/" + randomCategory(user, random), user.token());
+                }),
+                new Operation("GET api/expenses/total/category/{id}", 10, random -> {
+                    Credentials user = randomUser(random);
+                    return get("/api/expenses/total/category/" + randomCategory(user, random), user.token());
+                }),
+                new Operation("GET api/expenses/summary/category", 5, random ->
+                        get("/api/expenses/summary/category?start=" + LocalDate.now().minusYears(1) +
+                                "&end=" + LocalDate.now(), randomUser(random).token())),
+                new Operation("GET api/category/all", 15, random ->
+                        get("/api/category/all", randomUser(random).token())),
+                new Operation("GET api/category/{id}", 8, random -> {
+                    Credentials user = randomUser(random);
+                    return get("/api/category/" + randomCategory(user, random), user.token());
+                })
+        );
+        this.totalWeight = operations.stream().mapToInt(Operation::weight).sum();
+    }
+
+    public LatencyReport run(int concurrency, Duration duration) {
+        Instant deadline = Instant.now().plus(duration);
+        List<LatencyReport> reports = new ArrayList<>();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                LatencyReport report = new LatencyReport();
+                reports.add(report);
+                workers.submit(() -> work(report, deadline));
+            }
+        }
+
+        LatencyReport merged = new LatencyReport();
+        reports.forEach(merged::merge);
+        return merged;
+    }
+
+    /*PRIVATE METHODS*/
+    private void work(LatencyReport report, Instant deadline) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (Instant.now().isBefore(deadline)) {
+            Operation operation = pick(random);
+            HttpRequest request = operation.request().apply(random);
+            long start = System.nanoTime();
+            boolean success;
+            try {
+                success = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+            } catch (IOException e) {
+                success = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            report.record(operation.name(), System.nanoTime() - start, success);
+        }
+    }
+
+    private Operation pick(ThreadLocalRandom random) {
+        int ticket = random.nextInt(totalWeight);
+        for (Operation operation : operations) {
+            ticket -= operation.weight();
+            if (ticket < 0) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException("Weights do not add up");
+    }
+
+    private Credentials randomUser(ThreadLocalRandom random) {
+        return users.get(random.nextInt(users.size()));
+    }
+
+    // Categories are per user, so only the user's own are valid
+    private Integer randomCategory(Credentials user, ThreadLocalRandom random) {
+        return user.categoryIds().get(random.nextInt(user.categoryIds().size()));
+    }
+
+    private LocalDate randomDate(ThreadLocalRandom random) {
+        return LocalDate.now().minusDays(random.nextInt(3 * 365));
+    }
+
+    private HttpRequest get(String path, String token) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, String token, String json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.expense.tracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * @param enabled          accept {@code Prefer: respond-async} expense creation into the write-behind queue
+ * @param directory        where the queue's log segments and checkpoint live; must survive restarts
+ * @param segmentSize      size of each memory-mapped log segment
+ * @param batchSize        most queued expenses stored per database transaction
+ * @param maxPending       queued but not yet stored expenses above which new ones are refused with 429
+ * @param pollInterval     how long the batcher sleeps when the queue is empty
+ * @param receiptRetention how long the outcome of a queued expense can be looked up
+ */
+@ConfigurationProperties("app.ingest")
+public record IngestProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("data/ingest") Path directory,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("1000") int batchSize,
+        @DefaultValue("100000") int maxPending,
+        @DefaultValue("200ms") Duration pollInterval,
+        @DefaultValue("7d") Duration receiptRetention
+) {
+}
@@ -0,0 +1,20 @@
+package com.expense.tracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * @param signingKeys   base64 HMAC secrets (at least 32 bytes) by key id; every listed key is accepted for verification
+ * @param activeKeyId   key id used to sign new tokens, sent as the {@code kid} header
+ */
+@ConfigurationProperties("app.jwt")
+public record JwtProperties(
+        Map<String, String> signingKeys,
+        String activeKeyId,
+        @DefaultValue("15m") Duration accessTokenTtl,
+        @DefaultValue("14d") Duration refreshTokenTtl
+) {
+}
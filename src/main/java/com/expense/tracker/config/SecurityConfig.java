@@ -1,33 +1,58 @@
 package com.expense.tracker.config;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 @RequiredArgsConstructor
 public class SecurityConfig{
 
     private final UserDetailsService userDetailsService;
+    private final UserDetailsPasswordService userDetailsPasswordService;
     private final JwtFilter jwtFilter;
 
+    // Stored hashes are prefixed with their algorithm id; legacy unprefixed BCrypt hashes still match
+    // and, like hashes with a lower cost than app.security.bcrypt-strength, are re-encoded on the next login
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${app.security.bcrypt-strength:12}") int bcryptStrength) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+
     @Bean
-    public AuthenticationProvider authProvider() {
-        DaoAuthenticationProvider auth = new DaoAuthenticationProvider(new BCryptPasswordEncoder(12));
+    public AuthenticationProvider authProvider(PasswordEncoder passwordEncoder) {
+        DaoAuthenticationProvider auth = new DaoAuthenticationProvider(passwordEncoder);
         auth.setUserDetailsService(userDetailsService);
+        auth.setUserDetailsPasswordService(userDetailsPasswordService);
         return auth;
     }
 
@@ -36,6 +61,36 @@ public class SecurityConfig{
         return config.getAuthenticationManager();
     }
 
+    // Actuator endpoints other than health are for operators: HTTP Basic against the one account set by
+    // app.actuator.username/password, never an application user. Without a password they stay closed.
+    @Bean
+    @Order(1)
+    public SecurityFilterChain actuator(HttpSecurity http, PasswordEncoder passwordEncoder,
+                                        @Value("${app.actuator.username:operator}") String username,
+                                        @Value("${app.actuator.password:}") String password) throws Exception {
+        InMemoryUserDetailsManager operators = new InMemoryUserDetailsManager();
+        if (!password.isBlank()) {
+            operators.createUser(org.springframework.security.core.userdetails.User.withUsername(username)
+                    .password(password)
+                    .roles("OPERATOR")
+                    .build());
+        }
+        DaoAuthenticationProvider operatorAuth = new DaoAuthenticationProvider(passwordEncoder);
+        operatorAuth.setUserDetailsService(operators);
+
+        return http
+                .securityMatcher(EndpointRequest.toAnyEndpoint())
+                .csrf(customizer -> customizer.disable())
+                .authorizeHttpRequests(request -> request
+                        .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                        .anyRequest().hasRole("OPERATOR"))
+                .httpBasic(Customizer.withDefaults())
+                .authenticationManager(new ProviderManager(operatorAuth))
+                .sessionManagement(session ->
+                        session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .build();
+    }
+
     @Bean
     public SecurityFilterChain configure(HttpSecurity http) throws Exception {
         return http
@@ -46,6 +101,9 @@ public class SecurityConfig{
                         .anyRequest().authenticated())
                 .formLogin(form -> form.disable())
                 .httpBasic(httpBasic -> httpBasic.disable())
+                // 401 rather than 403 tells clients to refresh their access token
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
                 .sessionManagement(session ->
                         session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
@@ -1,25 +1,30 @@
 package com.expense.tracker.controller;
 
 import com.expense.tracker.dto.LoginRequestDTO;
+import com.expense.tracker.dto.RefreshRequestDTO;
 import com.expense.tracker.dto.RegistrationRequestDTO;
-import com.expense.tracker.service.JwtService;
 import com.expense.tracker.service.UserService;
+import io.jsonwebtoken.JwtException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.persistence.EntityExistsException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
 @Tag(name = "Authentication Controller", description = "REST endpoints for User authentication")
 @RequiredArgsConstructor
 @RestController
@@ -27,47 +32,101 @@ import org.springframework.web.bind.annotation.RestController;
 public class AuthenticationController {
 
     private final UserService userService;
-    private final AuthenticationManager authMgr;
-    private final JwtService jwtService;
 
     @Operation(summary = "Register new User")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User registered successfully"),
-            @ApiResponse(responseCode = "409", description = "User already exists")
+            @ApiResponse(responseCode = "409", description = "User already exists"),
+            @ApiResponse(responseCode = "429", description = "Too many sign-ups in progress, retry shortly")
     })
     @PostMapping("register")
-    public ResponseEntity<?> register(@RequestBody RegistrationRequestDTO user) {
+    public CompletableFuture<ResponseEntity<String>> register(@RequestBody RegistrationRequestDTO user) {
         try {
-            userService.register(user);
-            return new ResponseEntity<>(HttpStatus.OK);
-        } catch (EntityExistsException e) {
-            return new ResponseEntity<>("User already exists!", HttpStatus.CONFLICT);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return new ResponseEntity<>("Something unexpected happened!", HttpStatus.INTERNAL_SERVER_ERROR);
+            return userService.register(user).handle((ignored, failure) -> {
+                if (failure == null) {
+                    return new ResponseEntity<>(HttpStatus.OK);
+                }
+                if (unwrap(failure) instanceof EntityExistsException) {
+                    return new ResponseEntity<>("User already exists!", HttpStatus.CONFLICT);
+                }
+                failure.printStackTrace();
+                return new ResponseEntity<>("Something unexpected happened!", HttpStatus.INTERNAL_SERVER_ERROR);
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(tooManyRequests());
         }
     }
 
     @Operation(summary = "Get authentication token by logging in")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Credentials verified and token generated"),
-            @ApiResponse(responseCode = "401", description = "Invalid Credentials")
+            @ApiResponse(responseCode = "200", description = "Credentials verified, access and refresh tokens generated"),
+            @ApiResponse(responseCode = "401", description = "Invalid Credentials"),
+            @ApiResponse(responseCode = "429", description = "Too many logins in progress, retry shortly")
     })
     @PostMapping("login")
-    public ResponseEntity<String> login(@RequestBody LoginRequestDTO authReq) {
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody LoginRequestDTO authReq) {
         try {
-            Authentication authentication = authMgr
-                    .authenticate(new UsernamePasswordAuthenticationToken(authReq.username(), authReq.password()));
-            if (authentication.isAuthenticated()) {
-                String token = jwtService.generateToken(authReq.username());
-                return new ResponseEntity<>(token, HttpStatus.OK);
-            }
+            return userService.login(authReq).handle((tokens, failure) -> {
+                if (failure == null) {
+                    return new ResponseEntity<>(tokens, HttpStatus.OK);
+                }
+                if (unwrap(failure) instanceof AuthenticationException) {
+                    return new ResponseEntity<>("Invalid credentials!", HttpStatus.UNAUTHORIZED);
+                }
+                failure.printStackTrace();
+                return new ResponseEntity<>("Something unexpected happened!", HttpStatus.INTERNAL_SERVER_ERROR);
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(tooManyRequests());
+        }
+    }
 
-            return new ResponseEntity<>("Invalid credentials!", HttpStatus.UNAUTHORIZED);
+    @Operation(summary = "Exchange a refresh token for a new access and refresh token")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "New tokens generated, the presented refresh token is spent"),
+            @ApiResponse(responseCode = "401", description = "Refresh token invalid, expired, revoked or already used")
+    })
+    @PostMapping("refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshRequestDTO request) {
+        try {
+            return new ResponseEntity<>(userService.refresh(request.refreshToken()), HttpStatus.OK);
+        } catch (JwtException | IllegalArgumentException | AuthenticationException e) {
+            return new ResponseEntity<>("Invalid refresh token!", HttpStatus.UNAUTHORIZED);
         } catch (Exception e) {
             e.printStackTrace();
             return new ResponseEntity<>("Something unexpected happened!", HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    @Operation(summary = "Revoke the current access token and the given refresh token")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Tokens revoked")
+    })
+    @PostMapping("logout")
+    public ResponseEntity<?> logout(
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestBody(required = false) RefreshRequestDTO request
+    ) {
+        try {
+            String accessToken = authHeader != null && authHeader.startsWith("Bearer ") ? authHeader.substring(7) : null;
+            userService.logout(accessToken, request != null ? request.refreshToken() : null);
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new ResponseEntity<>("Something unexpected happened!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+/*PRIVATE METHODS*/
+
+    private ResponseEntity<String> tooManyRequests() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return new ResponseEntity<>("Too many requests, please try again shortly", headers, HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    private Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
 }
@@ -8,9 +8,11 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.persistence.NoResultException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -43,12 +45,20 @@ public class CategoryController {
     }
 
     @Operation(summary = "Get all categories")
-    @ApiResponse(responseCode = "200", description = "List of all categories")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "List of all categories"),
+            @ApiResponse(responseCode = "304", description = "Categories unchanged since the ETag sent in If-None-Match")
+    })
     @GetMapping("all")
-    public ResponseEntity<?> getAllCategories() {
+    public ResponseEntity<?> getAllCategories(WebRequest request) {
+        if (request.checkNotModified(categoryService.getAllCategoriesETag())) {
+            return null;
+        }
         List<CategoryDTO> categoryDTOs = categoryService.getAllCategories();
         if (!categoryDTOs.isEmpty()) {
-            return new ResponseEntity<>(categoryDTOs, HttpStatus.OK);
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(categoryDTOs);
         }
         return new ResponseEntity<>("Categories not added yet", HttpStatus.NOT_FOUND);
     }
@@ -1,18 +1,44 @@
 package com.expense.tracker.controller;
 
 import com.expense.tracker.dto.*;
+import com.expense.tracker.service.CurrentUser;
+import com.expense.tracker.service.ExpenseBulkImportService;
+import com.expense.tracker.service.ExpenseExportService;
+import com.expense.tracker.service.ExpenseIngestService;
+import com.expense.tracker.service.ExpenseRollupService;
+import com.expense.tracker.service.ExpenseSearchService;
 import com.expense.tracker.service.ExpenseService;
+import com.expense.tracker.service.ExpenseSyncService;
+import com.expense.tracker.service.ExpenseVersionTracker;
+import com.expense.tracker.service.IdempotencyService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Tag(name = "Expense Controller", description = "REST endpoints for managing expenses")
 @RestController
@@ -20,71 +46,275 @@ import java.time.LocalDate;
 @RequestMapping("api/expenses")
 public class ExpenseController {
 
+    private static final Pattern VERSION_ETAG = Pattern.compile("\"(\\d{1,18})\"");
+
     private final ExpenseService expenseService;
+    private final ExpenseExportService expenseExportService;
+    private final ExpenseRollupService rollupService;
+    private final ExpenseBulkImportService bulkImportService;
+    private final ExpenseIngestService ingestService;
+    private final ExpenseSearchService searchService;
+    private final ExpenseSyncService syncService;
+    private final ExpenseVersionTracker versionTracker;
+    private final IdempotencyService idempotencyService;
 
-    @Operation(summary = "Create a new expense.")
+    @Operation(summary = "Create a new expense. With Prefer: respond-async it is queued and stored shortly after")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Expense created successfully!"),
-            @ApiResponse(responseCode = "400", description = "Invalid request data")
+            @ApiResponse(responseCode = "202", description = "Expense queued, its status is at the Location given"),
+            @ApiResponse(responseCode = "400", description = "Invalid request data"),
+            @ApiResponse(responseCode = "409", description = "Expense with the same description already exists"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key already used for a different request"),
+            @ApiResponse(responseCode = "429", description = "Too many expenses queued, retry after the given delay")
     })
     @PostMapping
-    public ResponseEntity<?> createExpense(@Validated  @RequestBody NewExpenseDTO expenseDTO) {
+    public ResponseEntity<?> createExpense(
+            @Validated  @RequestBody NewExpenseDTO expenseDTO,
+            @RequestHeader(value = "Prefer", required = false) String prefer,
+            @RequestHeader(value = IdempotencyService.KEY_HEADER, required = false) String idempotencyKey
+    ) throws Exception {
         try {
-            return new ResponseEntity<>(
+            if (prefer != null && prefer.toLowerCase(Locale.ROOT).contains("respond-async") && ingestService.isEnabled()) {
+                // Not run under the Idempotency-Key: the append to the ingest log cannot be rolled back with the
+                // key's transaction. A retried expense is rejected when stored, as its description is taken by then
+                IngestReceiptDTO receipt = ingestService.enqueue(expenseDTO);
+                HttpHeaders headers = new HttpHeaders();
+                headers.setLocation(URI.create("/api/expenses/ingest/" + receipt.trackingId()));
+                headers.set("Preference-Applied", "respond-async");
+                return new ResponseEntity<>(receipt, headers, HttpStatus.ACCEPTED);
+            }
+            Callable<ResponseEntity<?>> create = () -> new ResponseEntity<>(
                     expenseService.saveExpense(expenseDTO),
                     HttpStatus.CREATED
             );
+            return idempotencyKey == null
+                    ? create.call()
+                    : idempotencyService.execute(idempotencyKey, "create-expense", expenseDTO, create);
         } catch (IllegalArgumentException argumentException) {
             return new ResponseEntity<>(
                     argumentException.getMessage(),
                     HttpStatus.BAD_REQUEST
             );
-        } catch (Exception e) {
+        } catch (IllegalStateException stateException) {
+            return new ResponseEntity<>(
+                    stateException.getMessage(),
+                    HttpStatus.UNPROCESSABLE_ENTITY
+            );
+        } catch (DataIntegrityViolationException e) {
+            return new ResponseEntity<>(
+                    "Expense with the same description already exists!",
+                    HttpStatus.CONFLICT
+            );
+        } catch (RejectedExecutionException e) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, "1");
             return new ResponseEntity<>(
-                    "Something went wrong!",
-                    HttpStatus.INTERNAL_SERVER_ERROR
+                    "Too many expenses queued, please try again shortly",
+                    headers,
+                    HttpStatus.TOO_MANY_REQUESTS
             );
         }
     }
 
-    @Operation(summary = "Get all expenses")
-    @ApiResponse(responseCode = "200", description = "List of all expenses")
-    @GetMapping
-    public ResponseEntity<?> getAllExpenses() {
+    @Operation(summary = "Create many expenses from a JSON array")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished, rejected rows are listed with their errors"),
+            @ApiResponse(responseCode = "400", description = "Too many rows"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key already used for a different request")
+    })
+    @PostMapping("bulk")
+    public ResponseEntity<?> importExpenses(
+            @RequestBody List<NewExpenseDTO> expenseDTOs,
+            @RequestHeader(value = IdempotencyService.KEY_HEADER, required = false) String idempotencyKey
+    ) throws Exception {
         try {
+            Callable<ResponseEntity<?>> importRows = () -> new ResponseEntity<>(
+                    bulkImportService.importExpenses(expenseDTOs),
+                    HttpStatus.OK
+            );
+            return idempotencyKey == null
+                    ? importRows.call()
+                    : idempotencyService.execute(idempotencyKey, "import-expenses", expenseDTOs, importRows);
+        } catch (IllegalArgumentException argumentException) {
+            return new ResponseEntity<>(
+                    argumentException.getMessage(),
+                    HttpStatus.BAD_REQUEST
+            );
+        } catch (IllegalStateException stateException) {
             return new ResponseEntity<>(
-                    expenseService.getAllExpenses(),
+                    stateException.getMessage(),
+                    HttpStatus.UNPROCESSABLE_ENTITY
+            );
+        }
+    }
+
+    @Operation(summary = "Create many expenses from an uploaded CSV file with amount, description, date and categoryId columns")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished, rejected rows are listed with their errors"),
+            @ApiResponse(responseCode = "400", description = "Missing header columns or too many rows"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key already used for a different file")
+    })
+    @PostMapping(value = "bulk/csv", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importExpensesCsv(
+            @RequestParam("file") MultipartFile file,
+            @RequestHeader(value = IdempotencyService.KEY_HEADER, required = false) String idempotencyKey
+    ) throws IOException {
+        try {
+            if (idempotencyKey == null) {
+                return new ResponseEntity<>(
+                        bulkImportService.importCsv(file.getInputStream()),
+                        HttpStatus.OK
+                );
+            }
+            byte[] csv = file.getBytes();
+            return idempotencyService.execute(idempotencyKey, "import-expenses-csv", csv, () -> new ResponseEntity<>(
+                    bulkImportService.importCsv(new ByteArrayInputStream(csv)),
                     HttpStatus.OK
+            ));
+        } catch (IllegalArgumentException argumentException) {
+            return new ResponseEntity<>(
+                    argumentException.getMessage(),
+                    HttpStatus.BAD_REQUEST
             );
-        } catch (Exception e) {
+        } catch (IllegalStateException stateException) {
             return new ResponseEntity<>(
-                    "Something went wrong!",
-                    HttpStatus.INTERNAL_SERVER_ERROR
+                    stateException.getMessage(),
+                    HttpStatus.UNPROCESSABLE_ENTITY
             );
         }
     }
 
-    @Operation(summary = "Get expenses by ID")
+    @Operation(summary = "Get all expenses, or one page of them when a cursor or size is given")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Expenses found"),
-            @ApiResponse(responseCode = "404", description = "No expenses found for given ID")
+            @ApiResponse(responseCode = "200", description = "List of all expenses, or a page with the cursor of the next one"),
+            @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or page size")
     })
-    @GetMapping("{id}")
-    public ResponseEntity<?> getExpenseById(@PathVariable Long id) {
+    @GetMapping
+    public ResponseEntity<?> getAllExpenses(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            WebRequest request
+    ) {
+        if (notModified(request)) {
+            return null;
+        }
         try {
+            if (cursor != null || size != null) {
+                return revalidated(expenseService.getExpensePage(cursor, size));
+            }
+            return revalidated(expenseService.getAllExpenses());
+        } catch (IllegalArgumentException argException) {
             return new ResponseEntity<>(
-                    expenseService.getExpenseById(id),
+                    argException.getMessage(),
+                    HttpStatus.BAD_REQUEST
+            );
+        }
+    }
+
+    @Operation(summary = "Get expenses created, updated or deleted after a sync watermark")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Changes in commit order, with the watermark to send next time"),
+            @ApiResponse(responseCode = "400", description = "Invalid watermark or limit"),
+            @ApiResponse(responseCode = "410", description = "Watermark older than the tombstone retention, sync again without one")
+    })
+    @GetMapping("changes")
+    public ResponseEntity<?> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer limit
+    ) {
+        try {
+            return new ResponseEntity<>(
+                    syncService.getChangesSince(since, limit),
                     HttpStatus.OK
             );
         } catch (IllegalArgumentException argException) {
             return new ResponseEntity<>(
                     argException.getMessage(),
+                    HttpStatus.BAD_REQUEST
+            );
+        } catch (IllegalStateException stateException) {
+            return new ResponseEntity<>(
+                    stateException.getMessage(),
+                    HttpStatus.GONE
+            );
+        }
+    }
+
+    @Operation(summary = "Get the state of the queue behind Prefer: respond-async expense creation")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Whether the queue is enabled and how full it is")
+    })
+    @GetMapping("ingest")
+    public ResponseEntity<?> getIngestQueueStatus() {
+        return new ResponseEntity<>(
+                ingestService.getQueueStatus(),
+                HttpStatus.OK
+        );
+    }
+
+    @Operation(summary = "Get whether a queued expense is still pending, stored or rejected")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Status of the queued expense, with its ID once stored"),
+            @ApiResponse(responseCode = "404", description = "Unknown tracking ID, or its receipt has expired")
+    })
+    @GetMapping("ingest/{trackingId}")
+    public ResponseEntity<?> getIngestReceipt(@PathVariable String trackingId) {
+        try {
+            return new ResponseEntity<>(
+                    ingestService.getStatus(trackingId),
+                    HttpStatus.OK
+            );
+        } catch (IllegalArgumentException argumentException) {
+            return new ResponseEntity<>(
+                    argumentException.getMessage(),
                     HttpStatus.NOT_FOUND
             );
-        } catch (Exception e) {
+        }
+    }
+
+    @Operation(summary = "Search expense descriptions by words, word prefixes or any fragment, best matches first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "A page of matching expenses, with the next page number if there is one"),
+            @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Invalid search text, page or size")
+    })
+    @GetMapping("search")
+    public ResponseEntity<?> searchExpenses(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer categoryId,
+            @RequestParam(required = false) LocalDate start,
+            @RequestParam(required = false) LocalDate end,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            WebRequest request
+    ) {
+        if (notModified(request)) {
+            return null;
+        }
+        try {
+            return revalidated(searchService.search(q, categoryId, start, end, page, size));
+        } catch (IllegalArgumentException argException) {
             return new ResponseEntity<>(
-                    "Something went wrong!",
-                    HttpStatus.INTERNAL_SERVER_ERROR
+                    argException.getMessage(),
+                    HttpStatus.BAD_REQUEST
+            );
+        }
+    }
+
+    @Operation(summary = "Get expenses by ID, with an ETag to send in If-Match when updating or deleting it")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Expenses found"),
+            @ApiResponse(responseCode = "404", description = "No expenses found for given ID")
+    })
+    @GetMapping("{id}")
+    public ResponseEntity<?> getExpenseById(@PathVariable Long id) {
+        try {
+            return versioned(expenseService.getExpenseById(id));
+        } catch (IllegalArgumentException argException) {
+            return new ResponseEntity<>(
+                    argException.getMessage(),
+                    HttpStatus.NOT_FOUND
             );
         }
     }
@@ -92,50 +322,137 @@ public class ExpenseController {
     @Operation(summary = "Get expenses by category ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Expenses for category found"),
+            @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match"),
             @ApiResponse(responseCode = "404", description = "No expenses found for category")
     })
     @GetMapping("category/{categoryId}")
-    public ResponseEntity<?> getExpenseByCategoryId(@PathVariable Integer categoryId) {
+    public ResponseEntity<?> getExpenseByCategoryId(@PathVariable Integer categoryId, WebRequest request) {
+        if (notModified(request)) {
+            return null;
+        }
         try {
-            return new ResponseEntity<>(
-                    expenseService.getExpensesByCategoryId(categoryId),
-                    HttpStatus.OK
-            );
+            return revalidated(expenseService.getExpensesByCategoryId(categoryId));
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(
                     e.getMessage(),
                     HttpStatus.NOT_FOUND
             );
-        } catch (Exception e) {
-            return new ResponseEntity<>(
-                    "Something went wrong!",
-                    HttpStatus.INTERNAL_SERVER_ERROR
-            );
         }
     }
 
     @Operation(summary = "Get expenses within a date range")
-    @ApiResponse(responseCode = "200", description = "Expenses within the specified date range")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Expenses within the specified date range"),
+            @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match")
+    })
     @GetMapping("date-range")
     public ResponseEntity<?> getExpenseByDateRange(
             @RequestParam LocalDate start,
-            @RequestParam LocalDate end
+            @RequestParam LocalDate end,
+            WebRequest request
             ) {
+        if (notModified(request)) {
+            return null;
+        }
+        return revalidated(expenseService.getExpenseBetween(start, end));
+    }
+
+    @Operation(summary = "Stream expenses within a date range as NDJSON or CSV")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Expenses streamed as they are read"),
+            @ApiResponse(responseCode = "400", description = "Unsupported export format")
+    })
+    @GetMapping("export")
+    public ResponseEntity<?> exportExpensesByDateRange(
+            @RequestParam LocalDate start,
+            @RequestParam LocalDate end,
+            @RequestParam(defaultValue = "ndjson") String format
+    ) {
+        ExpenseExportService.Format exportFormat;
         try {
+            exportFormat = ExpenseExportService.Format.of(format);
+        } catch (IllegalArgumentException argException) {
             return new ResponseEntity<>(
-                    expenseService.getExpenseBetween(start, end),
-                    HttpStatus.OK
+                    argException.getMessage(),
+                    HttpStatus.BAD_REQUEST
             );
-        } catch (Exception e) {
+        }
+
+        StreamingResponseBody body = out ->
+                expenseExportService.exportExpensesBetween(start, end, exportFormat, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"expenses-" + start + "-" + end + "." + exportFormat.name().toLowerCase() + "\"")
+                .body(body);
+    }
+
+    @Operation(summary = "Get count, total, min, max and average of expenses per category within a date range")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "One summary row per category with expenses in range"),
+            @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match")
+    })
+    @GetMapping("summary/category")
+    public ResponseEntity<?> getCategorySummary(
+            @RequestParam LocalDate start,
+            @RequestParam LocalDate end,
+            WebRequest request
+    ) {
+        if (notModified(request)) {
+            return null;
+        }
+        return revalidated(expenseService.getCategorySummary(start, end));
+    }
+
+    @Operation(summary = "Get count, total, min, max and average of expenses per day, week or month within a date range")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "One summary row per period with expenses in range"),
+            @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Unsupported granularity")
+    })
+    @GetMapping("summary/period")
+    public ResponseEntity<?> getPeriodSummary(
+            @RequestParam LocalDate start,
+            @RequestParam LocalDate end,
+            @RequestParam(defaultValue = "month") String granularity,
+            WebRequest request
+    ) {
+        if (notModified(request)) {
+            return null;
+        }
+        try {
+            return revalidated(expenseService.getPeriodSummary(start, end, granularity));
+        } catch (IllegalArgumentException argException) {
             return new ResponseEntity<>(
-                    "Something went wrong!",
-                    HttpStatus.INTERNAL_SERVER_ERROR
+                    argException.getMessage(),
+                    HttpStatus.BAD_REQUEST
             );
         }
     }
 
+    @Operation(summary = "Get total and count of expenses per category and month, read from the monthly rollup")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "One row per category and month with expenses in range"),
+            @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match")
+    })
+    @GetMapping("summary/monthly")
+    public ResponseEntity<?> getMonthlyTotals(
+            @RequestParam LocalDate start,
+            @RequestParam LocalDate end,
+            WebRequest request
+    ) {
+        if (notModified(request)) {
+            return null;
+        }
+        return revalidated(rollupService.getMonthlyTotals(start, end));
+    }
+
     @Operation(summary = "Get total expenses for a category")
-    @ApiResponse(responseCode = "200", description = "Total expenses for category found")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Total expenses for category found"),
+            @ApiResponse(responseCode = "404", description = "Category not found")
+    })
     @GetMapping("total/category/{categoryId}")
     public ResponseEntity<?> getTotalExpenseByCategory(@PathVariable Integer categoryId) {
         try {
@@ -143,59 +460,106 @@ public class ExpenseController {
                     expenseService.getTotalExpenseByCategoryId(categoryId),
                     HttpStatus.OK
             );
-        } catch (Exception e) {
+        } catch (IllegalArgumentException argException) {
             return new ResponseEntity<>(
-                    "Something went wrong!",
-                    HttpStatus.INTERNAL_SERVER_ERROR
+                    argException.getMessage(),
+                    HttpStatus.NOT_FOUND
             );
         }
     }
 
-    @Operation(summary = "Update an existing expense")
+    @Operation(summary = "Update an existing expense, only if it is still at the version named by If-Match when given")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Expense updated successfully"),
-            @ApiResponse(responseCode = "404", description = "Expense not found")
+            @ApiResponse(responseCode = "404", description = "Expense not found"),
+            @ApiResponse(responseCode = "409", description = "Expense with the same description already exists"),
+            @ApiResponse(responseCode = "412", description = "Expense changed since the ETag sent in If-Match")
     })
     @PutMapping("{id}")
-    public ResponseEntity<?> updateExpense(@PathVariable Long id, @Validated @RequestBody ExpenseDTO expenseDTO) {
+    public ResponseEntity<?> updateExpense(
+            @PathVariable Long id,
+            @Validated @RequestBody ExpenseDTO expenseDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
         try {
-            return new ResponseEntity<>(
-                    expenseService.updateExpense(expenseDTO, id),
-                    HttpStatus.OK
-            );
+            return versioned(expenseService.updateExpense(expenseDTO, id, expectedVersion(ifMatch)));
         } catch (IllegalArgumentException argException) {
             return new ResponseEntity<>(
                     argException.getMessage(),
                     HttpStatus.NOT_FOUND
             );
-        } catch (Exception e) {
+        } catch (OptimisticLockingFailureException lockingException) {
+            return new ResponseEntity<>(
+                    lockingException.getMessage(),
+                    HttpStatus.PRECONDITION_FAILED
+            );
+        } catch (DataIntegrityViolationException e) {
             return new ResponseEntity<>(
-                    "Something went wrong!",
-                    HttpStatus.INTERNAL_SERVER_ERROR
+                    "Expense with the same description already exists!",
+                    HttpStatus.CONFLICT
             );
         }
     }
 
-    @Operation(summary = "Delete an expense")
+    @Operation(summary = "Delete an expense, only if it is still at the version named by If-Match when given")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Expense deleted successfully"),
-            @ApiResponse(responseCode = "404", description = "Expense not found")
+            @ApiResponse(responseCode = "404", description = "Expense not found"),
+            @ApiResponse(responseCode = "412", description = "Expense changed since the ETag sent in If-Match")
     })
     @DeleteMapping("{id}")
-    public ResponseEntity<?> deleteExpense(@PathVariable Long id) {
+    public ResponseEntity<?> deleteExpense(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
         try {
-            expenseService.deleteExpense(id);
+            expenseService.deleteExpense(id, expectedVersion(ifMatch));
             return ResponseEntity.ok("Deleted!");
         } catch (IllegalArgumentException argException) {
             return new ResponseEntity<>(
                     argException.getMessage(),
                     HttpStatus.NOT_FOUND
             );
-        } catch (Exception e) {
+        } catch (OptimisticLockingFailureException lockingException) {
             return new ResponseEntity<>(
-                    "Something went wrong!",
-                    HttpStatus.INTERNAL_SERVER_ERROR
+                    lockingException.getMessage(),
+                    HttpStatus.PRECONDITION_FAILED
             );
         }
     }
+
+/*PRIVATE METHODS*/
+
+    // Answers 304 from the caller's expenses version alone; the validator headers are set on the response either way
+    private boolean notModified(WebRequest request) {
+        ExpenseVersionTracker.Validator validator = versionTracker.current(CurrentUser.username());
+        return request.checkNotModified(validator.etag(), validator.lastModified());
+    }
+
+    // Strong, since If-Match compares strongly; a single expense stays below the compression threshold anyway
+    private ResponseEntity<?> versioned(ExpenseService.VersionedExpense versioned) {
+        return ResponseEntity.ok()
+                .eTag("\"" + versioned.version() + "\"")
+                .body(versioned.expense());
+    }
+
+    // No If-Match, or "*", applies the change to whatever version is current
+    private Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        Matcher etag = VERSION_ETAG.matcher(ifMatch.strip());
+        if (!etag.matches()) {
+            // A weak, foreign or multi-valued tag can never match strongly
+            throw new OptimisticLockingFailureException("If-Match does not name a version of this expense");
+        }
+        return Long.valueOf(etag.group(1));
+    }
+
+    // Lets clients keep the body, revalidating it on every use
+    private ResponseEntity<?> revalidated(Object body) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(body);
+    }
 }
@@ -0,0 +1,32 @@
+package com.expense.tracker.controller;
+
+import com.expense.tracker.dto.RollupStatusDTO;
+import com.expense.tracker.service.ExpenseRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Operator checks on the monthly rollup, which spans every user's expenses: GET /actuator/rollup counts
+ * drifted rows and POST /actuator/rollup rebuilds the table while holding a SHARE lock on expenses.
+ * Like every actuator endpoint but health, it needs the operator account (see SecurityConfig).
+ */
+@Component
+@Endpoint(id = "rollup")
+@RequiredArgsConstructor
+public class ExpenseRollupEndpoint {
+
+    private final ExpenseRollupService rollupService;
+
+    @ReadOperation
+    public RollupStatusDTO verify() {
+        return rollupService.verify();
+    }
+
+    @WriteOperation
+    public RollupStatusDTO rebuild() {
+        return rollupService.rebuild();
+    }
+}
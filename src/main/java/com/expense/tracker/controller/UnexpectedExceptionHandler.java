@@ -0,0 +1,42 @@
+package com.expense.tracker.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+
+/**
+ * Answers 500 for whatever a controller did not map to a status itself, after logging it and attaching it
+ * to the request's observation, so http.server.requests tags the failure with its exception.
+ */
+@Slf4j
+@RestControllerAdvice
+public class UnexpectedExceptionHandler {
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<?> handleUnexpected(Exception e, HttpServletRequest request) throws Exception {
+        // Spring MVC's own exceptions (unreadable bodies, missing parameters, ...) and security failures
+        // keep the status they are normally given
+        if (e instanceof ErrorResponse
+                || e instanceof AuthenticationException
+                || e instanceof AccessDeniedException
+                || AnnotatedElementUtils.hasAnnotation(e.getClass(), ResponseStatus.class)) {
+            throw e;
+        }
+
+        log.error("{} {} failed", request.getMethod(), request.getRequestURI(), e);
+        ServerHttpObservationFilter.findObservationContext(request).ifPresent(context -> context.setError(e));
+        return new ResponseEntity<>(
+                "Something went wrong!",
+                HttpStatus.INTERNAL_SERVER_ERROR
+        );
+    }
+}
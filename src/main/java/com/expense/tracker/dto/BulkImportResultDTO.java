@@ -0,0 +1,10 @@
+package com.expense.tracker.dto;
+
+import java.util.List;
+
+public record BulkImportResultDTO(
+        int received,
+        int imported,
+        List<BulkRowErrorDTO> errors
+) {
+}
@@ -0,0 +1,7 @@
+package com.expense.tracker.dto;
+
+public record BulkRowErrorDTO(
+        int row,
+        String message
+) {
+}
@@ -0,0 +1,13 @@
+package com.expense.tracker.dto;
+
+import java.math.BigDecimal;
+
+public record CategorySummaryDTO(
+        Integer categoryId,
+        BigDecimal total,
+        Long count,
+        BigDecimal min,
+        BigDecimal max,
+        Double average
+) {
+}
@@ -0,0 +1,11 @@
+package com.expense.tracker.dto;
+
+import java.util.List;
+
+public record ExpenseChangesDTO(
+        List<ExpenseDTO> upserts,
+        List<Long> deletedIds,
+        String next,
+        boolean hasMore
+) {
+}
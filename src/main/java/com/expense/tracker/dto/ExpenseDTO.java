@@ -1,9 +1,11 @@
 package com.expense.tracker.dto;
 
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PastOrPresent;
+import jakarta.validation.constraints.Size;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -12,8 +14,10 @@ public record ExpenseDTO(
         Long id,
         @NotNull
         @DecimalMin(value = "0.1")
+        @Digits(integer = 8, fraction = 2)
         BigDecimal amount,
         @NotBlank
+        @Size(max = 255)
         String description,
         @NotNull
         @PastOrPresent
@@ -0,0 +1,9 @@
+package com.expense.tracker.dto;
+
+import java.util.List;
+
+public record ExpensePageDTO(
+        List<ExpenseDTO> content,
+        String nextCursor
+) {
+}
@@ -0,0 +1,14 @@
+package com.expense.tracker.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record ExpenseSearchHitDTO(
+        Long id,
+        BigDecimal amount,
+        String description,
+        LocalDate date,
+        Integer categoryId,
+        double rank
+) {
+}
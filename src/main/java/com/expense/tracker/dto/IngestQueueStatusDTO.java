@@ -0,0 +1,8 @@
+package com.expense.tracker.dto;
+
+public record IngestQueueStatusDTO(
+        boolean enabled,
+        int pending,
+        int capacity
+) {
+}
@@ -0,0 +1,9 @@
+package com.expense.tracker.dto;
+
+public record IngestReceiptDTO(
+        String trackingId,
+        String status,
+        Long expenseId,
+        String error
+) {
+}
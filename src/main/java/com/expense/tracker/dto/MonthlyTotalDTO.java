@@ -0,0 +1,12 @@
+package com.expense.tracker.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record MonthlyTotalDTO(
+        Integer categoryId,
+        LocalDate month,
+        BigDecimal total,
+        Long count
+) {
+}
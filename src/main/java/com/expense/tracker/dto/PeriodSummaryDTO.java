@@ -0,0 +1,14 @@
+package com.expense.tracker.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record PeriodSummaryDTO(
+        LocalDate period,
+        BigDecimal total,
+        Long count,
+        BigDecimal min,
+        BigDecimal max,
+        Double average
+) {
+}
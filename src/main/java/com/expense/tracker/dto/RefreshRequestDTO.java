@@ -0,0 +1,6 @@
+package com.expense.tracker.dto;
+
+public record RefreshRequestDTO(
+        String refreshToken
+) {
+}
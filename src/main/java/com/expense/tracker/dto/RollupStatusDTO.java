@@ -0,0 +1,7 @@
+package com.expense.tracker.dto;
+
+public record RollupStatusDTO(
+        long driftedRows,
+        long rebuiltRows
+) {
+}
@@ -0,0 +1,9 @@
+package com.expense.tracker.dto;
+
+public record TokenResponseDTO(
+        String accessToken,
+        String refreshToken,
+        String tokenType,
+        long expiresIn
+) {
+}
@@ -1,22 +1,31 @@
 package com.expense.tracker.model;
 
 import jakarta.persistence.*;
-import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 
 import java.util.List;
 
 @Entity
 @Table(name = "categories")
-@Data
+// No @Data: generated equals/hashCode/toString would walk lazy associations
+@Getter
+@Setter
 public class Category {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "categories_seq")
+    @SequenceGenerator(name = "categories_seq", sequenceName = "categories_seq", allocationSize = 50)
     private Integer id;
 
-    @Column(length = 50, unique = true, nullable = false)
+    // Unique per owner (uk_categories_owner_name)
+    @Column(length = 50, nullable = false)
     private String name;
 
+    // Username of the user the category belongs to
+    @Column(length = 15, updatable = false)
+    private String owner;
+
     @OneToMany(
             mappedBy = "category",
             fetch = FetchType.LAZY,
@@ -36,7 +45,8 @@ public class Category {
     }
 
     public Category() {}
-    public Category(String name) {
+    public Category(String name, String owner) {
         this.name = name;
+        this.owner = owner;
     }
 }
@@ -2,28 +2,37 @@ package com.expense.tracker.model;
 
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.SQLDelete;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
-@Table(
-        name = "expenses",
-        indexes = @Index(name = "idx_expense_date", columnList = "expense_date")
-)
-@Data
+// Indexes are managed by the Flyway migrations in db/migration
+@Table(name = "expenses")
+// Deletes leave a tombstone for delta sync; change_xid and updated_at are maintained by a database trigger
+@SQLDelete(sql = "UPDATE expenses SET deleted = true, version = version + 1 WHERE id = ? AND version = ?")
+@SQLRestriction("deleted = false")
+@DynamicUpdate
+@Getter
+@Setter
 @AllArgsConstructor
 public class Expense {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expenses_seq")
+    @SequenceGenerator(name = "expenses_seq", sequenceName = "expenses_seq", allocationSize = 50)
     private Long id;
 
     @Column(precision = 10, scale = 2, nullable = false)
     private BigDecimal amount;
 
-    @Column(unique = true, nullable = false)
+    // Unique per owner among live rows (partial index uk_expenses_owner_description_live)
+    @Column(nullable = false)
     private String description;
 
     @Column(name = "expense_date", columnDefinition = "DATE", nullable = false)
@@ -36,6 +45,15 @@ public class Expense {
     @JoinColumn(name = "category_id", referencedColumnName = "id")
     private Category category;
 
+    // Username of the user the expense belongs to
+    @Column(length = 15, updatable = false)
+    private String owner;
+
+    // Bumped by every update and soft delete; the expense's ETag
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     //Constructor
     public Expense() {}
     public Expense(BigDecimal amount, String description, LocalDate date, Category category) {
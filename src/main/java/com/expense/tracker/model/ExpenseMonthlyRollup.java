@@ -0,0 +1,40 @@
+package com.expense.tracker.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "expense_monthly_rollups")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExpenseMonthlyRollup {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "total_amount", precision = 14, scale = 2, nullable = false)
+    private BigDecimal totalAmount;
+
+    @Column(name = "expense_count", nullable = false)
+    private Long expenseCount;
+
+    @Embeddable
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+
+        @Column(name = "category_id")
+        private Integer categoryId;
+
+        @Column(name = "month_start", columnDefinition = "DATE")
+        private LocalDate monthStart;
+    }
+}
@@ -1,8 +1,21 @@
 package com.expense.tracker.repository;
 
 import com.expense.tracker.model.Category;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface CategoryRepo extends JpaRepository<Category, Integer> {
-    Category findByNameContaining(String name);
+    Optional<Category> findByIdAndOwner(Integer id, String owner);
+
+    boolean existsByIdAndOwner(Integer id, String owner);
+
+    List<Category> findByOwner(String owner, Sort sort);
+
+    @Query("SELECT c.id FROM Category c WHERE c.owner = ?1 AND c.id IN ?2")
+    List<Integer> findExistingIds(String owner, Collection<Integer> ids);
 }
@@ -1,22 +1,68 @@
 package com.expense.tracker.repository;
 
+import com.expense.tracker.dto.ExpenseDTO;
 import com.expense.tracker.model.Expense;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ExpenseRepo extends JpaRepository<Expense, Long> {
 
-    @Query("SELECT e FROM Expense e WHERE e.category.id = ?1")
-    List<Expense> findByCategoryId(Integer categoryId);
+    // Read paths project straight into DTOs: e.category.id resolves to the FK column, so no join or proxy is involved
+    String EXPENSE_DTO = "SELECT new com.expense.tracker.dto.ExpenseDTO(e.id, e.amount, e.description, e.date, e.category.id) ";
 
-    @Query("SELECT e FROM Expense e WHERE e.date BETWEEN ?1 AND ?2")
-    List<Expense> findByDateRange(LocalDate start, LocalDate end);
+    // Every query is scoped to one owner, which leads the indexes built in V9
+    Optional<Expense> findByIdAndOwner(Long id, String owner);
 
-    @Query("SELECT SUM(e.amount) FROM Expense e WHERE e.category.id = ?1")
-    BigDecimal getTotalAmountByCategoryId(Integer categoryId);
+    @Query(EXPENSE_DTO + "FROM Expense e WHERE e.owner = ?1")
+    List<ExpenseDTO> findAllDTOs(String owner);
+
+    @Query(EXPENSE_DTO + "FROM Expense e WHERE e.owner = ?1 AND e.category.id = ?2")
+    List<ExpenseDTO> findByCategoryId(String owner, Integer categoryId);
+
+    @Query(EXPENSE_DTO + "FROM Expense e WHERE e.owner = ?1 AND e.date BETWEEN ?2 AND ?3")
+    List<ExpenseDTO> findByDateRange(String owner, LocalDate start, LocalDate end);
+
+    // Must be consumed inside a transaction: Postgres only uses a server-side cursor when autocommit is off
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(EXPENSE_DTO + "FROM Expense e WHERE e.owner = ?1 AND e.date BETWEEN ?2 AND ?3 ORDER BY e.date, e.id")
+    Stream<ExpenseDTO> streamByDateRange(String owner, LocalDate start, LocalDate end);
+
+    @Query("SELECT e.description FROM Expense e WHERE e.owner = ?1 AND e.description IN ?2")
+    List<String> findExistingDescriptions(String owner, Collection<String> descriptions);
+
+    // Summaries read expense_ledger: live expenses plus archived ones, tombstones excluded.
+    // Columns: category id, total, count, min, max, average
+    @Query(value = "SELECT category_id, SUM(amount), COUNT(*), MIN(amount), MAX(amount), " +
+            "CAST(AVG(amount) AS DOUBLE PRECISION) " +
+            "FROM expense_ledger WHERE owner = ?1 AND expense_date BETWEEN ?2 AND ?3 " +
+            "GROUP BY category_id ORDER BY category_id",
+            nativeQuery = true)
+    List<Object[]> summarizeByCategory(String owner, LocalDate start, LocalDate end);
+
+    // Columns: period, total, count, min, max, average; unit is a date_trunc field such as 'month'
+    @Query(value = "SELECT CAST(date_trunc(?2, CAST(expense_date AS TIMESTAMP)) AS DATE), " +
+            "SUM(amount), COUNT(*), MIN(amount), MAX(amount), CAST(AVG(amount) AS DOUBLE PRECISION) " +
+            "FROM expense_ledger WHERE owner = ?1 AND expense_date BETWEEN ?3 AND ?4 " +
+            "GROUP BY 1 ORDER BY 1",
+            nativeQuery = true)
+    List<Object[]> summarizeByPeriod(String owner, String unit, LocalDate start, LocalDate end);
+
+    // Keyset pagination: newest first, seeking on (owner, expense_date, id) so every page is an index range scan
+    @Query(EXPENSE_DTO + "FROM Expense e WHERE e.owner = ?1 ORDER BY e.date DESC, e.id DESC")
+    List<ExpenseDTO> findFirstPage(String owner, Pageable pageable);
+
+    @Query(EXPENSE_DTO + "FROM Expense e WHERE e.owner = ?1 AND (e.date < ?2 OR (e.date = ?2 AND e.id < ?3)) " +
+            "ORDER BY e.date DESC, e.id DESC")
+    List<ExpenseDTO> findPageAfter(String owner, LocalDate date, Long id, Pageable pageable);
 
 }
@@ -0,0 +1,62 @@
+package com.expense.tracker.repository;
+
+import com.expense.tracker.model.ExpenseMonthlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ExpenseRollupRepo extends JpaRepository<ExpenseMonthlyRollup, ExpenseMonthlyRollup.Key> {
+
+    // Atomic upsert so concurrent writers to the same category and month never lose a delta
+    @Modifying
+    @Query(value = "INSERT INTO expense_monthly_rollups (category_id, month_start, total_amount, expense_count) " +
+            "VALUES (?1, ?2, ?3, ?4) " +
+            "ON CONFLICT (category_id, month_start) DO UPDATE SET " +
+            "total_amount = expense_monthly_rollups.total_amount + EXCLUDED.total_amount, " +
+            "expense_count = expense_monthly_rollups.expense_count + EXCLUDED.expense_count",
+            nativeQuery = true)
+    void applyDelta(Integer categoryId, LocalDate monthStart, BigDecimal amount, long count);
+
+    @Query("SELECT SUM(r.totalAmount) FROM ExpenseMonthlyRollup r WHERE r.id.categoryId = ?1")
+    BigDecimal getTotalAmountByCategoryId(Integer categoryId);
+
+    // Rollups are keyed by category, and every category has a single owner
+    @Query("SELECT r FROM ExpenseMonthlyRollup r " +
+            "WHERE r.id.categoryId IN (SELECT c.id FROM Category c WHERE c.owner = ?1) " +
+            "AND r.id.monthStart BETWEEN ?2 AND ?3 AND r.expenseCount > 0 " +
+            "ORDER BY r.id.monthStart, r.id.categoryId")
+    List<ExpenseMonthlyRollup> findByMonthBetween(String owner, LocalDate start, LocalDate end);
+
+    @Modifying
+    @Query(value = "DELETE FROM expense_monthly_rollups WHERE category_id = ?1", nativeQuery = true)
+    void deleteByCategoryId(Integer categoryId);
+
+    // Blocks expense writes until the surrounding transaction ends so a rebuild sees a stable ledger
+    @Modifying
+    @Query(value = "LOCK TABLE expenses IN SHARE MODE", nativeQuery = true)
+    void lockExpenses();
+
+    // Built from expense_ledger, so months whose partitions were archived keep their totals
+    @Modifying
+    @Query(value = "INSERT INTO expense_monthly_rollups (category_id, month_start, total_amount, expense_count) " +
+            "SELECT category_id, CAST(date_trunc('month', CAST(expense_date AS TIMESTAMP)) AS DATE), SUM(amount), COUNT(*) " +
+            "FROM expense_ledger WHERE category_id IS NOT NULL " +
+            "GROUP BY 1, 2",
+            nativeQuery = true)
+    int insertFromExpenses();
+
+    @Query(value = "SELECT COUNT(*) FROM expense_monthly_rollups r " +
+            "FULL OUTER JOIN (" +
+            "SELECT category_id, CAST(date_trunc('month', CAST(expense_date AS TIMESTAMP)) AS DATE) AS month_start, " +
+            "SUM(amount) AS total_amount, COUNT(*) AS expense_count " +
+            "FROM expense_ledger WHERE category_id IS NOT NULL GROUP BY 1, 2" +
+            ") x ON r.category_id = x.category_id AND r.month_start = x.month_start " +
+            "WHERE COALESCE(r.total_amount, 0) <> COALESCE(x.total_amount, 0) " +
+            "OR COALESCE(r.expense_count, 0) <> COALESCE(x.expense_count, 0)",
+            nativeQuery = true)
+    long countDrift();
+}
@@ -0,0 +1,26 @@
+package com.expense.tracker.repository;
+
+import com.expense.tracker.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface RevokedTokenRepo extends JpaRepository<RevokedToken, String> {
+
+    // Returns 0 when the token was already revoked, which lets refresh-token rotation detect reuse across instances
+    @Modifying
+    @Query(value = "INSERT INTO revoked_tokens (token_id, expires_at) VALUES (?1, ?2) " +
+            "ON CONFLICT (token_id) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(String tokenId, Instant expiresAt);
+
+    @Query("SELECT t FROM RevokedToken t WHERE t.revokedAt > ?1 AND t.expiresAt > ?2")
+    List<RevokedToken> findRevokedSince(Instant revokedAfter, Instant expiresAfter);
+
+    @Modifying
+    @Query("DELETE FROM RevokedToken t WHERE t.expiresAt < ?1")
+    int deleteExpired(Instant now);
+}
@@ -0,0 +1,111 @@
+package com.expense.tracker.service;
+
+import com.expense.tracker.dto.CategoryDTO;
+import com.expense.tracker.repository.CategoryRepo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory copy of each user's categories. Categories change rarely, so a user's categories are held as one
+ * immutable snapshot that is dropped on every local write and reloaded on the next read. Writes made by
+ * other instances are picked up once the snapshot is older than {@link #MAX_AGE}.
+ */
+@Component
+@RequiredArgsConstructor
+public class CategoryCache {
+
+    private static final Duration MAX_AGE = Duration.ofMinutes(5);
+
+    private final CategoryRepo categoryRepo;
+
+    // A load racing with invalidate() is discarded by Caffeine, so a stale snapshot is never kept
+    private final Cache<String, Snapshot> snapshots = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(MAX_AGE)
+            .build();
+
+    public record Snapshot(
+            List<CategoryDTO> categories,
+            Map<Integer, CategoryDTO> byId,
+            Map<String, Integer> idsByName,
+            String etag
+    ) {}
+
+    public Snapshot get(String owner) {
+        return snapshots.get(owner, this::load);
+    }
+
+    public CategoryDTO findById(String owner, Integer id) {
+        return get(owner).byId().get(id);
+    }
+
+    public Integer findIdByName(String owner, String name) {
+        return get(owner).idsByName().get(name);
+    }
+
+    public boolean exists(String owner, Integer id) {
+        if (get(owner).byId().containsKey(id)) {
+            return true;
+        }
+        // Possibly created on another instance since the snapshot was taken
+        boolean exists = categoryRepo.existsByIdAndOwner(id, owner);
+        if (exists) {
+            invalidate(owner);
+        }
+        return exists;
+    }
+
+    public void invalidate(String owner) {
+        snapshots.invalidate(owner);
+        // A reload racing with the writing transaction could still see the old rows, so drop it again after commit
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    snapshots.invalidate(owner);
+                }
+            });
+        }
+    }
+
+    /*PRIVATE METHODS*/
+    private Snapshot load(String owner) {
+        List<CategoryDTO> categories = categoryRepo.findByOwner(owner, Sort.by("id"))
+                .stream()
+                .map(category -> new CategoryDTO(category.getId(), category.getName()))
+                .toList();
+        return new Snapshot(
+                categories,
+                categories.stream().collect(Collectors.toUnmodifiableMap(CategoryDTO::id, Function.identity())),
+                categories.stream().collect(Collectors.toUnmodifiableMap(CategoryDTO::name, CategoryDTO::id)),
+                etagOf(categories)
+        );
+    }
+
+    private String etagOf(List<CategoryDTO> categories) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            categories.forEach(category ->
+                    digest.update((category.id() + ":" + category.name() + "\n").getBytes(StandardCharsets.UTF_8)));
+            // Tomcat skips compression when a response carries a strong ETag
+            return "W/\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -3,60 +3,88 @@ package com.expense.tracker.service;
 import com.expense.tracker.dto.CategoryDTO;
 import com.expense.tracker.model.Category;
 import com.expense.tracker.repository.CategoryRepo;
+import jakarta.persistence.EntityExistsException;
 import jakarta.persistence.NoResultException;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Service
+@Timed("category.service")
 @RequiredArgsConstructor
 public class CategoryService {
 
     private final CategoryRepo categoryRepo;
+    private final ExpenseRollupService rollupService;
+    private final CategoryCache categoryCache;
+    private final ExpenseVersionTracker expenseVersionTracker;
 
 // CREATE NEW CATEGORY
     public CategoryDTO saveCategory(CategoryDTO dto) {
-        categoryRepo.save(toCategory(dto));
-        return toCategoryDTO(categoryRepo.findByNameContaining(dto.name()));
+        String owner = CurrentUser.username();
+        if (categoryCache.findIdByName(owner, dto.name()) != null) {
+            throw new EntityExistsException("Category already exists");
+        }
+        Category category = categoryRepo.save(toCategory(dto, owner));
+        categoryCache.invalidate(owner);
+        return toCategoryDTO(category);
     }
 
 // GET ALL CATEGORY
     public List<CategoryDTO> getAllCategories() {
-        List<Category> categories = categoryRepo.findAll();
-        return categories.stream()
-                .map(this::toCategoryDTO)
-                .toList();
+        return categoryCache.get(CurrentUser.username()).categories();
+    }
+
+// GET VERSION TAG OF ALL CATEGORIES
+    public String getAllCategoriesETag() {
+        return categoryCache.get(CurrentUser.username()).etag();
     }
 
 // GET CATEGORY BY ID
     public CategoryDTO getCategoryById(Integer id) {
+        String owner = CurrentUser.username();
+        CategoryDTO cached = categoryCache.findById(owner, id);
+        if (cached != null) {
+            return cached;
+        }
         return toCategoryDTO(
-                categoryRepo.findById(id)
+                categoryRepo.findByIdAndOwner(id, owner)
                         .orElseThrow(() -> new NoResultException("Category with given ID doesn't exist"))
         );
     }
 
 // UPDATE CATEGORY
     public CategoryDTO updateCategory(Integer id, CategoryDTO dto) {
-        Category category = categoryRepo.findById(id).orElse(null);
+        String owner = CurrentUser.username();
+        Category category = categoryRepo.findByIdAndOwner(id, owner).orElse(null);
         if (category != null) {
             category.setName(dto.name());
-            return toCategoryDTO(categoryRepo.save(category));
+            CategoryDTO updated = toCategoryDTO(categoryRepo.save(category));
+            categoryCache.invalidate(owner);
+            return updated;
         }
         throw new NoResultException("Category with given ID doesn't exist");
     }
 
 // DELETE CATEGORY
+    @Transactional
     public void deleteCategory(Integer id) {
-        Category category = categoryRepo.findById(id)
+        String owner = CurrentUser.username();
+        Category category = categoryRepo.findByIdAndOwner(id, owner)
                 .orElseThrow(() -> new NoResultException("Category with given ID doesn't exist"));
         categoryRepo.delete(category);
+        // The category's expenses go with it through orphan removal, archived ones through their foreign key (V15)
+        rollupService.deleteCategory(id);
+        categoryCache.invalidate(owner);
+        expenseVersionTracker.bump(owner);
     }
 
     /*PRIVATE METHODS*/
-    private Category toCategory(CategoryDTO dto) {
-        return new Category(dto.name());
+    private Category toCategory(CategoryDTO dto, String owner) {
+        return new Category(dto.name(), owner);
     }
 
     private CategoryDTO toCategoryDTO(Category category) {
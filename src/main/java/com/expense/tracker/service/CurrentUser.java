@@ -0,0 +1,22 @@
+package com.expense.tracker.service;
+
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * The authenticated caller. Its username is the owner of every expense and category it creates, and
+ * every read is scoped to it.
+ */
+public final class CurrentUser {
+
+    private CurrentUser() {}
+
+    public static String username() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new AuthenticationCredentialsNotFoundException("No authenticated user");
+        }
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,273 @@
+package com.expense.tracker.service;
+
+import com.expense.tracker.dto.BulkImportResultDTO;
+import com.expense.tracker.dto.BulkRowErrorDTO;
+import com.expense.tracker.dto.CategoryDTO;
+import com.expense.tracker.dto.NewExpenseDTO;
+import com.expense.tracker.repository.CategoryRepo;
+import com.expense.tracker.repository.ExpenseRepo;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class ExpenseBulkImportService {
+
+    public static final int MAX_ROWS = 100_000;
+    private static final int BATCH_SIZE = 1_000;
+    // Keeps IN lists well below the driver's bind parameter limit
+    private static final int LOOKUP_CHUNK_SIZE = 1_000;
+    private static final List<String> CSV_COLUMNS = List.of("amount", "description", "date", "categoryid");
+
+    // ON CONFLICT turns a concurrent duplicate into a zero update count instead of aborting the batch.
+    // No arbiter is named: the only other unique key is the sequence-assigned id, and a date-partitioned
+    // table has no (owner, description) index to name (its trigger raises the duplicate instead)
+    private static final String INSERT_SQL =
+            "INSERT INTO expenses (id, amount, description, expense_date, category_id, owner) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Validator validator;
+    private final CategoryRepo categoryRepo;
+    private final CategoryCache categoryCache;
+    private final ExpenseRepo expenseRepo;
+    private final ExpenseRollupService rollupService;
+    private final ExpenseVersionTracker versionTracker;
+    private final ExpenseIdAllocator idAllocator;
+
+// IMPORT EXPENSES FROM JSON
+    @Transactional
+    public BulkImportResultDTO importExpenses(List<NewExpenseDTO> rows) {
+        List<BulkRowErrorDTO> errors = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i) == null) {
+                errors.add(new BulkRowErrorDTO(i + 1, "Row is empty"));
+            }
+        }
+        return importRows(rows, errors);
+    }
+
+// IMPORT EXPENSES FROM CSV
+    @Transactional
+    public BulkImportResultDTO importCsv(InputStream csv) throws IOException {
+        List<BulkRowErrorDTO> errors = new ArrayList<>();
+        List<NewExpenseDTO> rows = parseCsv(csv, errors);
+        return importRows(rows, errors);
+    }
+
+    /*PRIVATE METHODS*/
+    private record Row(int number, NewExpenseDTO expense) {}
+
+    private record Insert(long id, Row row) {}
+
+    private record RollupBucket(Integer categoryId, LocalDate monthStart) {}
+
+    private BulkImportResultDTO importRows(List<NewExpenseDTO> rows, List<BulkRowErrorDTO> errors) {
+        if (rows.size() > MAX_ROWS) {
+            throw new IllegalArgumentException("A bulk import accepts at most " + MAX_ROWS + " rows");
+        }
+
+        List<Row> valid = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            NewExpenseDTO expense = rows.get(i);
+            if (expense == null) {
+                continue; // Rejected by the parser and already reported
+            }
+            Set<ConstraintViolation<NewExpenseDTO>> violations = validator.validate(expense);
+            if (violations.isEmpty()) {
+                valid.add(new Row(i + 1, expense));
+            } else {
+                errors.add(new BulkRowErrorDTO(i + 1, describe(violations)));
+            }
+        }
+
+        String owner = CurrentUser.username();
+        Map<Integer, CategoryDTO> cachedCategories = categoryCache.get(owner).byId();
+        Set<Integer> knownCategories = new HashSet<>(cachedCategories.keySet());
+        knownCategories.addAll(inChunks(
+                valid.stream()
+                        .map(row -> row.expense().categoryId())
+                        .filter(id -> !cachedCategories.containsKey(id))
+                        .distinct()
+                        .toList(),
+                ids -> categoryRepo.findExistingIds(owner, ids)
+        ));
+        Set<String> existingDescriptions = new HashSet<>(inChunks(
+                valid.stream().map(row -> row.expense().description()).distinct().toList(),
+                descriptions -> expenseRepo.findExistingDescriptions(owner, descriptions)
+        ));
+
+        List<Row> accepted = new ArrayList<>();
+        Set<String> seenDescriptions = new HashSet<>();
+        for (Row row : valid) {
+            if (!knownCategories.contains(row.expense().categoryId())) {
+                errors.add(new BulkRowErrorDTO(row.number(), "Category with given ID doesn't exist!"));
+            } else if (existingDescriptions.contains(row.expense().description())
+                    || !seenDescriptions.add(row.expense().description())) {
+                errors.add(new BulkRowErrorDTO(row.number(), "Expense with the same description already exists!"));
+            } else {
+                accepted.add(row);
+            }
+        }
+
+        // One nextval per block of ids rather than one per row
+        List<Long> ids = idAllocator.allocate(accepted.size());
+        List<Insert> inserts = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            inserts.add(new Insert(ids.get(i), accepted.get(i)));
+        }
+        int[][] updateCounts = jdbcTemplate.batchUpdate(INSERT_SQL, inserts, BATCH_SIZE, (ps, insert) -> {
+            ps.setLong(1, insert.id());
+            ps.setBigDecimal(2, insert.row().expense().amount());
+            ps.setString(3, insert.row().expense().description());
+            ps.setObject(4, insert.row().expense().date());
+            ps.setInt(5, insert.row().expense().categoryId());
+            ps.setString(6, owner);
+        });
+
+        int imported = 0;
+        int index = 0;
+        Map<RollupBucket, BigDecimal> bucketTotals = new HashMap<>();
+        Map<RollupBucket, Long> bucketCounts = new HashMap<>();
+        for (int[] batch : updateCounts) {
+            for (int count : batch) {
+                Row row = accepted.get(index++);
+                if (count == 0) {
+                    errors.add(new BulkRowErrorDTO(row.number(), "Expense with the same description already exists!"));
+                    continue;
+                }
+                imported++;
+                RollupBucket bucket = new RollupBucket(row.expense().categoryId(), row.expense().date().withDayOfMonth(1));
+                bucketTotals.merge(bucket, row.expense().amount(), BigDecimal::add);
+                bucketCounts.merge(bucket, 1L, Long::sum);
+            }
+        }
+        bucketTotals.forEach((bucket, total) ->
+                rollupService.applyDelta(bucket.categoryId(), bucket.monthStart(), total, bucketCounts.get(bucket)));
+        if (imported > 0) {
+            versionTracker.bump(owner);
+        }
+
+        errors.sort(Comparator.comparingInt(BulkRowErrorDTO::row));
+        return new BulkImportResultDTO(rows.size(), imported, errors);
+    }
+
+    private <T, R> List<R> inChunks(List<T> values, Function<List<T>, List<R>> query) {
+        List<R> results = new ArrayList<>();
+        for (int from = 0; from < values.size(); from += LOOKUP_CHUNK_SIZE) {
+            results.addAll(query.apply(values.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, values.size()))));
+        }
+        return results;
+    }
+
+    private String describe(Set<ConstraintViolation<NewExpenseDTO>> violations) {
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    // Expects a header naming amount, description, date and categoryId in any order
+    private List<NewExpenseDTO> parseCsv(InputStream csv, List<BulkRowErrorDTO> errors) throws IOException {
+        List<List<String>> records = readCsvRecords(
+                new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8))
+        );
+        if (records.isEmpty()) {
+            return List.of();
+        }
+
+        List<String> header = records.get(0).stream()
+                .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                .toList();
+        if (!header.containsAll(CSV_COLUMNS)) {
+            throw new IllegalArgumentException("CSV header must contain amount, description, date and categoryId");
+        }
+        int amount = header.indexOf("amount");
+        int description = header.indexOf("description");
+        int date = header.indexOf("date");
+        int categoryId = header.indexOf("categoryid");
+
+        List<NewExpenseDTO> rows = new ArrayList<>(records.size() - 1);
+        for (int i = 1; i < records.size(); i++) {
+            List<String> record = records.get(i);
+            try {
+                rows.add(new NewExpenseDTO(
+                        new BigDecimal(record.get(amount).trim()),
+                        record.get(description),
+                        LocalDate.parse(record.get(date).trim()),
+                        Integer.valueOf(record.get(categoryId).trim())
+                ));
+            } catch (NumberFormatException | DateTimeParseException | IndexOutOfBoundsException e) {
+                rows.add(null);
+                errors.add(new BulkRowErrorDTO(i, "Malformed row: " + e.getMessage()));
+            }
+        }
+        return rows;
+    }
+
+    // RFC 4180 style: quoted fields may contain commas, doubled quotes and line breaks
+    private List<List<String>> readCsvRecords(BufferedReader reader) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            char ch = (char) c;
+            if (quoted) {
+                if (ch != '"') {
+                    field.append(ch);
+                    continue;
+                }
+                reader.mark(1);
+                if (reader.read() == '"') {
+                    field.append('"');
+                } else {
+                    quoted = false;
+                    reader.reset();
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (ch == '\n') {
+                record.add(field.toString());
+                field.setLength(0);
+                addRecord(records, record);
+                record = new ArrayList<>();
+            } else if (ch != '\r') {
+                field.append(ch);
+            }
+        }
+        if (!field.isEmpty() || !record.isEmpty()) {
+            record.add(field.toString());
+            addRecord(records, record);
+        }
+        return records;
+    }
+
+    private void addRecord(List<List<String>> records, List<String> record) {
+        boolean blankLine = record.size() == 1 && record.get(0).isBlank();
+        if (!blankLine) {
+            records.add(record);
+        }
+    }
+}
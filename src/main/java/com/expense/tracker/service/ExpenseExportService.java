@@ -0,0 +1,89 @@
+package com.expense.tracker.service;
+
+import com.expense.tracker.dto.ExpenseDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+
+@Service
+@RequiredArgsConstructor
+public class ExpenseExportService {
+
+    private final ExpenseService expenseService;
+    private final ObjectMapper objectMapper;
+
+    public enum Format {
+        NDJSON("application/x-ndjson"),
+        CSV("text/csv");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public static Format of(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported export format: " + name);
+            }
+        }
+    }
+
+// EXPORT EXPENSES BY DATE RANGE
+    public void exportExpensesBetween(LocalDate start, LocalDate end, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write("id,amount,description,date,categoryId\n");
+        }
+
+        try {
+            expenseService.forEachExpenseBetween(start, end, expense -> {
+                try {
+                    writer.write(format == Format.CSV ? toCsvLine(expense) : toJsonLine(expense));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    /*PRIVATE METHODS*/
+    private String toJsonLine(ExpenseDTO expense) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(expense) + "\n";
+    }
+
+    private String toCsvLine(ExpenseDTO expense) {
+        return expense.id() + ","
+                + expense.amount().toPlainString() + ","
+                + escapeCsv(expense.description()) + ","
+                + expense.date() + ","
+                + expense.categoryId() + "\n";
+    }
+
+    private String escapeCsv(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
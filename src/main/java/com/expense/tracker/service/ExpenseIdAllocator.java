@@ -0,0 +1,54 @@
+package com.expense.tracker.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Expense ids for inserts made with plain JDBC, drawn from expenses_seq the way Hibernate's pooled optimizer
+ * draws them for the entity: each sequence value v reserves the block v - INCREMENT BY + 1 .. v, so one
+ * nextval covers a whole block of rows. Ids left over in the last block are skipped, as Hibernate skips the
+ * rest of its block on shutdown.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExpenseIdAllocator {
+
+    private static final String INCREMENT_SQL =
+            "SELECT seqincrement FROM pg_sequence WHERE seqrelid = CAST('expenses_seq' AS REGCLASS)";
+    private static final String NEXT_VALUES_SQL =
+            "SELECT nextval('expenses_seq') FROM generate_series(1, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Read once, like the increment Hibernate settles on at startup
+    private volatile Long increment;
+
+    public List<Long> allocate(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        long step = increment();
+        while (ids.size() < count) {
+            long blocks = (count - ids.size() + step - 1) / step;
+            for (long high : jdbcTemplate.queryForList(NEXT_VALUES_SQL, Long.class, blocks)) {
+                // The sequence starts at 1, so the first block holds that id alone
+                for (long id = Math.max(high - step + 1, 1); id <= high && ids.size() < count; id++) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /*PRIVATE METHODS*/
+    private long increment() {
+        Long step = increment;
+        if (step == null) {
+            step = jdbcTemplate.queryForObject(INCREMENT_SQL, Long.class);
+            increment = step;
+        }
+        return step;
+    }
+}
@@ -0,0 +1,221 @@
+package com.expense.tracker.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Durable append-only log behind the write-behind queue, kept in fixed-size memory-mapped segment files.
+ * Each record is its payload length, the payload's CRC32 and the payload; a length of 0 ends the written
+ * data of a segment and -1 means the writer moved on to the next one. A separate checkpoint file records
+ * how far the consumer got, and segments wholly before it are deleted.
+ * Any number of threads may append; a single thread reads and commits.
+ */
+final class ExpenseIngestLog implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int NEXT_SEGMENT = -1;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    record Position(long segment, int offset) {}
+
+    record Entry(byte[] payload, Position next) {}
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final FileChannel checkpoint;
+    private final ConcurrentSkipListMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+
+    // End of the written data, guarded by this
+    private long writeSegment;
+    private int writeOffset;
+
+    ExpenseIngestLog(Path directory, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        checkpoint = FileChannel.open(directory.resolve("checkpoint"), CREATE, READ, WRITE);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    long index = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(index, map(file));
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.put(0L, map(segmentPath(0)));
+        }
+        recoverEnd();
+    }
+
+    /**
+     * Appends one record and forces it to disk before returning.
+     */
+    void append(byte[] payload) throws IOException {
+        int recordBytes = HEADER_BYTES + payload.length;
+        if (recordBytes + Integer.BYTES > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit a log segment");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        MappedByteBuffer buffer;
+        int offset;
+        synchronized (this) {
+            buffer = segments.get(writeSegment);
+            // Always leave room for the next-segment marker
+            if (writeOffset + recordBytes + Integer.BYTES > buffer.capacity()) {
+                buffer.putInt(writeOffset, NEXT_SEGMENT);
+                buffer.force(writeOffset, Integer.BYTES);
+                buffer = map(segmentPath(writeSegment + 1));
+                segments.put(writeSegment + 1, buffer);
+                writeSegment++;
+                writeOffset = 0;
+            }
+            offset = writeOffset;
+            buffer.put(offset + HEADER_BYTES, payload);
+            buffer.putInt(offset + Integer.BYTES, (int) crc.getValue());
+            buffer.putInt(offset, payload.length);
+            writeOffset += recordBytes;
+        }
+        // Concurrent appenders flush their own ranges in parallel
+        buffer.force(offset, recordBytes);
+    }
+
+    /**
+     * Reads up to {@code max} records starting at {@code from}, each with the position following it.
+     */
+    List<Entry> read(Position from, int max) {
+        long endSegment;
+        int endOffset;
+        synchronized (this) {
+            endSegment = writeSegment;
+            endOffset = writeOffset;
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        long segment = from.segment();
+        int offset = from.offset();
+        while (entries.size() < max && (segment < endSegment || offset < endOffset)) {
+            MappedByteBuffer buffer = segments.get(segment);
+            int length = buffer.getInt(offset);
+            if (length == NEXT_SEGMENT || length == 0) {
+                segment++;
+                offset = 0;
+                continue;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER_BYTES, payload);
+            offset += HEADER_BYTES + length;
+            entries.add(new Entry(payload, new Position(segment, offset)));
+        }
+        return entries;
+    }
+
+    /**
+     * Where the consumer stopped last time, or the start of the oldest segment.
+     */
+    Position checkpoint() throws IOException {
+        Position start = new Position(segments.firstKey(), 0);
+        ByteBuffer stored = ByteBuffer.allocate(Long.BYTES + 2 * Integer.BYTES);
+        if (checkpoint.read(stored, 0) < stored.capacity()) {
+            return start;
+        }
+        long segment = stored.getLong(0);
+        int offset = stored.getInt(Long.BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(stored.array(), 0, Long.BYTES + Integer.BYTES);
+        // A torn checkpoint replays from the start; stored expenses are skipped by their receipts
+        if (stored.getInt(Long.BYTES + Integer.BYTES) != (int) crc.getValue() || segment < start.segment()) {
+            return start;
+        }
+        return new Position(segment, offset);
+    }
+
+    /**
+     * Records that everything before {@code position} is stored and drops the segments it no longer needs.
+     */
+    void commit(Position position) throws IOException {
+        ByteBuffer stored = ByteBuffer.allocate(Long.BYTES + 2 * Integer.BYTES);
+        stored.putLong(position.segment()).putInt(position.offset());
+        CRC32 crc = new CRC32();
+        crc.update(stored.array(), 0, Long.BYTES + Integer.BYTES);
+        stored.putInt((int) crc.getValue()).flip();
+        checkpoint.write(stored, 0);
+        checkpoint.force(false);
+
+        for (Map.Entry<Long, MappedByteBuffer> segment : segments.headMap(position.segment()).entrySet()) {
+            segments.remove(segment.getKey());
+            Files.deleteIfExists(segmentPath(segment.getKey()));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        checkpoint.close();
+    }
+
+    /*PRIVATE METHODS*/
+    private Path segmentPath(long index) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%020d", index) + SEGMENT_SUFFIX);
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE)) {
+            // Existing segments keep their size even if the configured size changed since
+            long size = channel.size() > 0 ? channel.size() : segmentBytes;
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    // Finds the end of the written data; a record torn by a crash is cut off there
+    private void recoverEnd() throws IOException {
+        writeSegment = segments.lastKey();
+        MappedByteBuffer buffer = segments.get(writeSegment);
+        int offset = 0;
+        while (offset + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length == NEXT_SEGMENT) {
+                // Crashed between marking this segment full and creating the next one
+                segments.put(writeSegment + 1, map(segmentPath(writeSegment + 1)));
+                writeSegment++;
+                writeOffset = 0;
+                return;
+            }
+            if (length <= 0 || offset + HEADER_BYTES + length > buffer.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER_BYTES, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if (buffer.getInt(offset + Integer.BYTES) != (int) crc.getValue()) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        if (offset + Integer.BYTES <= buffer.capacity()) {
+            buffer.putInt(offset, 0);
+            buffer.force(offset, Integer.BYTES);
+        }
+        writeOffset = offset;
+    }
+}
@@ -0,0 +1,370 @@
+package com.expense.tracker.service;
+
+import com.expense.tracker.config.IngestProperties;
+import com.expense.tracker.dto.IngestQueueStatusDTO;
+import com.expense.tracker.dto.IngestReceiptDTO;
+import com.expense.tracker.dto.NewExpenseDTO;
+import com.expense.tracker.repository.ExpenseRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind path for high-rate expense creation. A queued expense is appended to a durable local log
+ * ({@link ExpenseIngestLog}) and acknowledged at once; a single background thread stores the log in
+ * batches, one transaction per batch, and writes a receipt for every expense in that same transaction.
+ * After a crash the log is replayed from its checkpoint, and expenses that already have a receipt are
+ * skipped, so each queued expense is stored at most once.
+ * Pending expenses are only visible on the instance that accepted them.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExpenseIngestService implements MeterBinder, DisposableBean {
+
+    public static final String PENDING = "PENDING";
+    public static final String STORED = "STORED";
+    public static final String REJECTED = "REJECTED";
+
+    private static final long MIN_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+    // Explicit ids let the receipts point at the stored expenses without a round trip per row
+    private static final String INSERT_EXPENSE_SQL =
+            "INSERT INTO expenses (id, amount, description, expense_date, category_id, owner) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+    private static final String INSERT_RECEIPT_SQL =
+            "INSERT INTO expense_ingest_receipts (tracking_id, owner, expense_id, error) VALUES (?, ?, ?, ?)";
+
+    private final IngestProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExpenseRepo expenseRepo;
+    private final CategoryCache categoryCache;
+    private final ExpenseRollupService rollupService;
+    private final ExpenseVersionTracker versionTracker;
+    private final ExpenseIdAllocator idAllocator;
+
+    // Tracking id to owner of every accepted expense not stored yet
+    private final Map<UUID, String> pendingOwners = new ConcurrentHashMap<>();
+
+    private ExpenseIngestLog ingestLog;
+    private Thread batcher;
+    private volatile boolean running;
+    private Counter retries;
+
+    private record Queued(UUID trackingId, String owner, NewExpenseDTO expense) {}
+
+    private record RollupBucket(Integer categoryId, LocalDate monthStart) {}
+
+// START AND STOP
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() throws IOException {
+        if (!properties.enabled() || running) {
+            return;
+        }
+        ingestLog = new ExpenseIngestLog(properties.directory(), (int) properties.segmentSize().toBytes());
+
+        // Whatever the last run accepted but did not store is still pending
+        ExpenseIngestLog.Position position = ingestLog.checkpoint();
+        List<ExpenseIngestLog.Entry> entries;
+        while (!(entries = ingestLog.read(position, properties.batchSize())).isEmpty()) {
+            for (ExpenseIngestLog.Entry entry : entries) {
+                Queued queued = decode(entry.payload());
+                pendingOwners.put(queued.trackingId(), queued.owner());
+            }
+            position = entries.getLast().next();
+        }
+
+        running = true;
+        batcher = new Thread(this::drain, "expense-ingest");
+        batcher.setDaemon(true);
+        batcher.start();
+    }
+
+    @Override
+    public synchronized void destroy() throws IOException, InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(batcher);
+        batcher.join(TimeUnit.SECONDS.toMillis(10));
+        ingestLog.close();
+    }
+
+// QUEUE EXPENSE
+    /**
+     * @throws IllegalArgumentException    when the category doesn't belong to the caller
+     * @throws RejectedExecutionException  when too many expenses are waiting to be stored
+     */
+    public IngestReceiptDTO enqueue(NewExpenseDTO expenseDTO) throws IOException {
+        if (!running) {
+            throw new IllegalStateException("The ingestion queue is not running");
+        }
+        String owner = CurrentUser.username();
+        if (!categoryCache.exists(owner, expenseDTO.categoryId())) {
+            throw new IllegalArgumentException("Category with given ID doesn't exist!");
+        }
+        if (pendingOwners.size() >= properties.maxPending()) {
+            throw new RejectedExecutionException("The ingestion queue is full");
+        }
+
+        Queued queued = new Queued(UUID.randomUUID(), owner, expenseDTO);
+        pendingOwners.put(queued.trackingId(), owner);
+        try {
+            ingestLog.append(encode(queued));
+        } catch (IOException | RuntimeException e) {
+            pendingOwners.remove(queued.trackingId());
+            throw e;
+        }
+        LockSupport.unpark(batcher);
+        return new IngestReceiptDTO(queued.trackingId().toString(), PENDING, null, null);
+    }
+
+// GET QUEUED EXPENSE STATUS
+    public IngestReceiptDTO getStatus(String trackingId) {
+        String owner = CurrentUser.username();
+        UUID id;
+        try {
+            id = UUID.fromString(trackingId);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Queued expense with given ID doesn't exist!");
+        }
+        if (owner.equals(pendingOwners.get(id))) {
+            return new IngestReceiptDTO(trackingId, PENDING, null, null);
+        }
+
+        List<IngestReceiptDTO> receipts = jdbcTemplate.query(
+                "SELECT expense_id, error FROM expense_ingest_receipts WHERE tracking_id = ? AND owner = ?",
+                (rs, rowNum) -> {
+                    Long expenseId = rs.getObject("expense_id", Long.class);
+                    return new IngestReceiptDTO(trackingId, expenseId != null ? STORED : REJECTED,
+                            expenseId, rs.getString("error"));
+                },
+                id, owner);
+        if (receipts.isEmpty()) {
+            throw new IllegalArgumentException("Queued expense with given ID doesn't exist!");
+        }
+        return receipts.getFirst();
+    }
+
+    public IngestQueueStatusDTO getQueueStatus() {
+        return new IngestQueueStatusDTO(running, pendingOwners.size(), properties.maxPending());
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+// PURGE OLD RECEIPTS
+    @Scheduled(fixedDelayString = "${app.ingest.purge-interval:PT1H}")
+    public void purgeReceipts() {
+        if (running) {
+            jdbcTemplate.update("DELETE FROM expense_ingest_receipts WHERE processed_at < ?",
+                    Timestamp.from(Instant.now().minus(properties.receiptRetention())));
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("expense.ingest.pending", pendingOwners, Map::size)
+                .description("Queued expenses not stored yet")
+                .register(registry);
+        retries = Counter.builder("expense.ingest.retries")
+                .description("Batches that failed to store and will be retried")
+                .register(registry);
+    }
+
+    /*PRIVATE METHODS*/
+    private void drain() {
+        long backoff = MIN_BACKOFF_MILLIS;
+        ExpenseIngestLog.Position position;
+        try {
+            position = ingestLog.checkpoint();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        while (running) {
+            List<ExpenseIngestLog.Entry> entries = ingestLog.read(position, properties.batchSize());
+            if (entries.isEmpty()) {
+                LockSupport.parkNanos(properties.pollInterval().toNanos());
+                continue;
+            }
+            List<Queued> batch = entries.stream().map(entry -> decode(entry.payload())).toList();
+            try {
+                storeOrSplit(batch);
+                batch.forEach(queued -> pendingOwners.remove(queued.trackingId()));
+                position = entries.getLast().next();
+                ingestLog.commit(position);
+                backoff = MIN_BACKOFF_MILLIS;
+            } catch (IOException | RuntimeException e) {
+                // Typically the database being unreachable; the batch stays in the log until it is stored
+                log.warn("Storing {} queued expenses failed, retrying in {} ms", batch.size(), backoff, e);
+                if (retries != null) {
+                    retries.increment();
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoff));
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    // A constraint violation only fails the expense that caused it, not the rest of its batch
+    private void storeOrSplit(List<Queued> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> store(batch));
+        } catch (DataIntegrityViolationException e) {
+            if (batch.size() > 1) {
+                batch.forEach(queued -> storeOrSplit(List.of(queued)));
+            } else {
+                Queued queued = batch.getFirst();
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (findReceipted(batch).isEmpty()) {
+                        jdbcTemplate.update(INSERT_RECEIPT_SQL, queued.trackingId(), queued.owner(), null,
+                                "Expense could not be stored");
+                    }
+                });
+            }
+        }
+    }
+
+    private void store(List<Queued> batch) {
+        Set<UUID> receipted = findReceipted(batch);
+        Map<String, Set<String>> existingDescriptions = new HashMap<>();
+        batch.stream()
+                .filter(queued -> !receipted.contains(queued.trackingId()))
+                .collect(Collectors.groupingBy(Queued::owner,
+                        Collectors.mapping(queued -> queued.expense().description(), Collectors.toSet())))
+                .forEach((owner, descriptions) -> existingDescriptions.put(owner,
+                        new HashSet<>(expenseRepo.findExistingDescriptions(owner, List.copyOf(descriptions)))));
+
+        List<Queued> accepted = new ArrayList<>();
+        List<Object[]> receipts = new ArrayList<>();
+        for (Queued queued : batch) {
+            if (receipted.contains(queued.trackingId())) {
+                continue; // Stored before a crash, replayed from the log
+            }
+            if (!categoryCache.exists(queued.owner(), queued.expense().categoryId())) {
+                receipts.add(receipt(queued, null, "Category with given ID doesn't exist!"));
+            } else if (!existingDescriptions.get(queued.owner()).add(queued.expense().description())) {
+                receipts.add(receipt(queued, null, "Expense with the same description already exists!"));
+            } else {
+                accepted.add(queued);
+            }
+        }
+
+        List<Long> ids = idAllocator.allocate(accepted.size());
+        List<Object[]> rows = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            Queued queued = accepted.get(i);
+            rows.add(new Object[]{
+                    ids.get(i),
+                    queued.expense().amount(),
+                    queued.expense().description(),
+                    queued.expense().date(),
+                    queued.expense().categoryId(),
+                    queued.owner()
+            });
+        }
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_EXPENSE_SQL, rows);
+
+        Map<RollupBucket, BigDecimal> bucketTotals = new HashMap<>();
+        Map<RollupBucket, Long> bucketCounts = new HashMap<>();
+        Set<String> changedOwners = new HashSet<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            Queued queued = accepted.get(i);
+            if (counts[i] == 0) {
+                // Claimed by a concurrent request since the lookup above
+                receipts.add(receipt(queued, null, "Expense with the same description already exists!"));
+                continue;
+            }
+            receipts.add(receipt(queued, ids.get(i), null));
+            RollupBucket bucket = new RollupBucket(queued.expense().categoryId(), queued.expense().date().withDayOfMonth(1));
+            bucketTotals.merge(bucket, queued.expense().amount(), BigDecimal::add);
+            bucketCounts.merge(bucket, 1L, Long::sum);
+            changedOwners.add(queued.owner());
+        }
+        bucketTotals.forEach((bucket, total) ->
+                rollupService.applyDelta(bucket.categoryId(), bucket.monthStart(), total, bucketCounts.get(bucket)));
+        changedOwners.forEach(versionTracker::bump);
+        jdbcTemplate.batchUpdate(INSERT_RECEIPT_SQL, receipts);
+    }
+
+    private Set<UUID> findReceipted(List<Queued> batch) {
+        String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT tracking_id FROM expense_ingest_receipts WHERE tracking_id IN (" + placeholders + ")",
+                UUID.class, batch.stream().map(Queued::trackingId).toArray()));
+    }
+
+    private Object[] receipt(Queued queued, Long expenseId, String error) {
+        return new Object[]{queued.trackingId(), queued.owner(), expenseId, error};
+    }
+
+    private byte[] encode(Queued queued) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(queued.trackingId().getMostSignificantBits());
+            out.writeLong(queued.trackingId().getLeastSignificantBits());
+            out.writeUTF(queued.owner());
+            out.writeUTF(queued.expense().amount().toPlainString());
+            out.writeUTF(queued.expense().description());
+            out.writeLong(queued.expense().date().toEpochDay());
+            out.writeInt(queued.expense().categoryId());
+        }
+        return bytes.toByteArray();
+    }
+
+    private Queued decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            UUID trackingId = new UUID(in.readLong(), in.readLong());
+            String owner = in.readUTF();
+            NewExpenseDTO expense = new NewExpenseDTO(
+                    new BigDecimal(in.readUTF()),
+                    in.readUTF(),
+                    LocalDate.ofEpochDay(in.readLong()),
+                    in.readInt()
+            );
+            return new Queued(trackingId, owner, expense);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.expense.tracker.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.Period;
+
+/**
+ * Housekeeping for the opt-in date-partitioned expenses table (db/partitioning/by-date). Keeps partitions
+ * created ahead of the calendar, so new expenses never land in the default partition, and moves partitions
+ * older than {@code app.expenses.archive-after} into the archive. Does nothing while expenses is not
+ * range-partitioned.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExpensePartitionMaintainer {
+
+    // Only one instance runs the maintenance at a time
+    private static final long ADVISORY_LOCK_KEY = 0x6578_7061_7274L;
+
+    private static final String PARTITIONED_SQL =
+            "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table " +
+            "WHERE partrelid = to_regclass('expenses') AND partstrat = 'r')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ExpenseVersionTracker versionTracker;
+
+    @Value("${app.expenses.partitions-ahead:3}")
+    private int partitionsAhead;
+
+    @Value("${app.expenses.partition-unit:month}")
+    private String partitionUnit;
+
+    // Empty keeps every partition attached
+    @Value("${app.expenses.archive-after:}")
+    private String archiveAfter;
+
+// CREATE UPCOMING PARTITIONS AND ARCHIVE OLD ONES
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.expenses.partition-maintenance-interval:PT6H}")
+    @Transactional
+    public void maintain() {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(PARTITIONED_SQL, Boolean.class))
+                || !Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                        "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, ADVISORY_LOCK_KEY))) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate horizon = "year".equals(partitionUnit)
+                ? today.plusYears(partitionsAhead)
+                : today.plusMonths(partitionsAhead);
+        jdbcTemplate.queryForObject("SELECT expenses_create_partitions(?, ?)", Integer.class,
+                Date.valueOf(today), Date.valueOf(horizon));
+
+        if (!archiveAfter.isBlank()) {
+            LocalDate cutoff = today.minus(Period.parse(archiveAfter));
+            Integer archived = jdbcTemplate.queryForObject("SELECT expenses_archive_partitions(?)", Integer.class,
+                    Date.valueOf(cutoff));
+            if (archived != null && archived > 0) {
+                // Archived expenses drop out of every user's lists
+                versionTracker.bumpAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.expense.tracker.service;
+
+import com.expense.tracker.dto.MonthlyTotalDTO;
+import com.expense.tracker.dto.RollupStatusDTO;
+import com.expense.tracker.model.ExpenseMonthlyRollup;
+import com.expense.tracker.repository.ExpenseRollupRepo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Maintains per category and month totals alongside the expenses table.
+ * Deltas must be applied in the same transaction as the expense write they describe.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExpenseRollupService {
+
+    private final ExpenseRollupRepo rollupRepo;
+
+// RECORD A CHANGE
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyDelta(Integer categoryId, LocalDate date, BigDecimal amount, long count) {
+        if (categoryId == null) {
+            return;
+        }
+        rollupRepo.applyDelta(categoryId, date.withDayOfMonth(1), amount, count);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteCategory(Integer categoryId) {
+        rollupRepo.deleteByCategoryId(categoryId);
+    }
+
+// READ TOTALS
+    // The caller checks that the category belongs to the current user
+    public BigDecimal getTotalByCategoryId(Integer categoryId) {
+        return rollupRepo.getTotalAmountByCategoryId(categoryId);
+    }
+
+    public List<MonthlyTotalDTO> getMonthlyTotals(LocalDate start, LocalDate end) {
+        return rollupRepo.findByMonthBetween(CurrentUser.username(), start.withDayOfMonth(1), end)
+                .stream()
+                .map(this::toMonthlyTotalDTO)
+                .toList();
+    }
+
+// VERIFY AND REPAIR
+    @Transactional(readOnly = true)
+    public RollupStatusDTO verify() {
+        return new RollupStatusDTO(rollupRepo.countDrift(), 0);
+    }
+
+    @Transactional
+    public RollupStatusDTO rebuild() {
+        rollupRepo.lockExpenses();
+        long drifted = rollupRepo.countDrift();
+        rollupRepo.deleteAllInBatch();
+        long rebuilt = rollupRepo.insertFromExpenses();
+        return new RollupStatusDTO(drifted, rebuilt);
+    }
+
+    // Seeds the rollup the first time the application starts against an existing ledger
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initializeIfEmpty() {
+        if (rollupRepo.count() == 0) {
+            rollupRepo.lockExpenses();
+            rollupRepo.insertFromExpenses();
+        }
+    }
+
+    /*PRIVATE METHODS*/
+    private MonthlyTotalDTO toMonthlyTotalDTO(ExpenseMonthlyRollup rollup) {
+        return new MonthlyTotalDTO(
+                rollup.getId().getCategoryId(),
+                rollup.getId().getMonthStart(),
+                rollup.getTotalAmount(),
+                rollup.getExpenseCount()
+        );
+    }
+}
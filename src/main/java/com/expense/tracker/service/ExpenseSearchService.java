@@ -0,0 +1,145 @@
+package com.expense.tracker.service;
+
+import com.expense.tracker.dto.ExpenseSearchHitDTO;
+import com.expense.tracker.dto.ExpenseSearchPageDTO;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Ranked search over the caller's expense descriptions. Every word of the text matches as a word prefix
+ * through the full-text index, and text of three or more characters also matches anywhere inside a
+ * description through the trigram index (see the V11 migration).
+ */
+@Service
+@Timed("expense.service")
+@RequiredArgsConstructor
+public class ExpenseSearchService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_TEXT_LENGTH = 100;
+    // Ranked results past this point are not worth sorting for
+    public static final int MAX_RESULTS = 1_000;
+    // Shorter text would make the trigram index read most of its entries
+    private static final int MIN_SUBSTRING_LENGTH = 3;
+
+    // The to_tsvector expression must match the index definition exactly to be served by it
+    private static final String DOCUMENT = "to_tsvector('simple', description)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+// SEARCH EXPENSES
+    public ExpenseSearchPageDTO search(String text, Integer categoryId, LocalDate start, LocalDate end,
+                                       Integer page, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : size;
+        int pageNumber = page == null ? 0 : page;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (pageNumber < 0 || (long) (pageNumber + 1) * pageSize > MAX_RESULTS) {
+            throw new IllegalArgumentException("Only the first " + MAX_RESULTS + " results can be paged through");
+        }
+
+        String trimmed = text == null ? "" : text.strip();
+        if (trimmed.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException("Search text must be at most " + MAX_TEXT_LENGTH + " characters");
+        }
+        String prefixQuery = toPrefixQuery(trimmed);
+        boolean substring = trimmed.length() >= MIN_SUBSTRING_LENGTH;
+        if (prefixQuery.isEmpty() && !substring) {
+            throw new IllegalArgumentException("Search text must contain a word or at least "
+                    + MIN_SUBSTRING_LENGTH + " characters");
+        }
+
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT id, amount, description, expense_date, category_id, ");
+        List<String> matches = new ArrayList<>();
+        List<String> ranks = new ArrayList<>();
+        if (!prefixQuery.isEmpty()) {
+            ranks.add("ts_rank(" + DOCUMENT + ", to_tsquery('simple', ?))");
+            params.add(prefixQuery);
+        }
+        if (substring) {
+            ranks.add("similarity(description, ?)");
+            params.add(trimmed);
+        }
+        sql.append(String.join(" + ", ranks)).append(" AS rank FROM expenses WHERE owner = ? AND NOT deleted");
+        params.add(CurrentUser.username());
+
+        if (!prefixQuery.isEmpty()) {
+            matches.add(DOCUMENT + " @@ to_tsquery('simple', ?)");
+            params.add(prefixQuery);
+        }
+        if (substring) {
+            matches.add("description ILIKE ? ESCAPE '\\'");
+            params.add("%" + escapeLike(trimmed) + "%");
+        }
+        sql.append(" AND (").append(String.join(" OR ", matches)).append(")");
+
+        if (categoryId != null) {
+            sql.append(" AND category_id = ?");
+            params.add(categoryId);
+        }
+        if (start != null) {
+            sql.append(" AND expense_date >= ?");
+            params.add(Date.valueOf(start));
+        }
+        if (end != null) {
+            sql.append(" AND expense_date <= ?");
+            params.add(Date.valueOf(end));
+        }
+
+        // One extra row tells whether another page exists
+        sql.append(" ORDER BY rank DESC, expense_date DESC, id DESC LIMIT ? OFFSET ?");
+        params.add(pageSize + 1);
+        params.add(pageNumber * pageSize);
+
+        List<ExpenseSearchHitDTO> hits = jdbcTemplate.query(sql.toString(), this::toHit, params.toArray());
+        Integer nextPage = null;
+        if (hits.size() > pageSize) {
+            hits = hits.subList(0, pageSize);
+            if ((long) (pageNumber + 2) * pageSize <= MAX_RESULTS) {
+                nextPage = pageNumber + 1;
+            }
+        }
+        return new ExpenseSearchPageDTO(hits, nextPage);
+    }
+
+/*PRIVATE METHODS*/
+
+    // "Coffee beans" becomes coffee:* & beans:*; anything but letters and digits separates words,
+    // so user input can never break the tsquery syntax
+    private String toPrefixQuery(String text) {
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .map(word -> word + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+
+    private String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private ExpenseSearchHitDTO toHit(ResultSet rs, int rowNum) throws SQLException {
+        return new ExpenseSearchHitDTO(
+                rs.getLong("id"),
+                rs.getBigDecimal("amount"),
+                rs.getString("description"),
+                rs.getObject("expense_date", LocalDate.class),
+                rs.getObject("category_id", Integer.class),
+                rs.getDouble("rank")
+        );
+    }
+}
@@ -1,123 +1,352 @@
 package com.expense.tracker.service;
 
+import com.expense.tracker.dto.CategorySummaryDTO;
+import com.expense.tracker.dto.ExpensePageDTO;
 import com.expense.tracker.dto.NewExpenseDTO;
 import com.expense.tracker.dto.ExpenseDTO;
+import com.expense.tracker.dto.PeriodSummaryDTO;
 import com.expense.tracker.model.Category;
 import com.expense.tracker.model.Expense;
 import com.expense.tracker.repository.CategoryRepo;
 import com.expense.tracker.repository.ExpenseRepo;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Timed("expense.service")
 @RequiredArgsConstructor
 public class ExpenseService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    public enum Granularity { DAY, WEEK, MONTH }
+
+    // The expense with the version its ETag is made from
+    public record VersionedExpense(ExpenseDTO expense, long version) {}
+
+    // The locked subquery hands back the values being replaced, which the rollup deltas need.
+    // Partitioning: owner = ? prunes the lookup to one owner-hash partition. Range partitions by date cannot
+    // be pruned, since the stored date is not known yet, so the id is looked up in each partition's primary
+    // key index. Joining on old.owner and old.expense_date then prunes the write at run time in either layout.
+    private static final String UPDATE_SQL =
+            "UPDATE expenses e " +
+            "SET amount = ?, description = ?, expense_date = ?, category_id = ?, version = e.version + 1 " +
+            "FROM (SELECT id, owner, expense_date, amount, category_id FROM expenses " +
+            "      WHERE id = ? AND owner = ? AND NOT deleted FOR UPDATE) old " +
+            "WHERE e.id = old.id AND e.owner = old.owner AND e.expense_date = old.expense_date";
+    private static final String UPDATE_RETURNING =
+            " RETURNING old.amount, old.expense_date, old.category_id, e.version";
+    // Deletes leave a tombstone for delta sync, like the entity's @SQLDelete. As with updates, only the
+    // owner-hash layout prunes; range partitions by date each get one primary key lookup on the id
+    private static final String DELETE_SQL =
+            "UPDATE expenses SET deleted = true, version = version + 1 WHERE id = ? AND owner = ? AND NOT deleted";
+    private static final String DELETE_RETURNING =
+            " RETURNING amount, expense_date, category_id, version";
+
     private final ExpenseRepo expenseRepo;
     private final CategoryRepo categoryRepo;
+    private final CategoryCache categoryCache;
+    private final ExpenseRollupService rollupService;
+    private final ExpenseVersionTracker versionTracker;
+    private final MeterRegistry meterRegistry;
+    private final JdbcTemplate jdbcTemplate;
 
 // SAVE EXPENSE
+    @Transactional
     public ExpenseDTO saveExpense(NewExpenseDTO expenseDTO) {
-        Expense expense = newDTOtoExpense(expenseDTO);
+        String owner = CurrentUser.username();
+        Expense expense = newDTOtoExpense(expenseDTO, owner);
 
         expenseRepo.save(expense);
+        rollupService.applyDelta(expenseDTO.categoryId(), expense.getDate(), expense.getAmount(), 1);
+        versionTracker.bump(owner);
         return toExpenseDTO(expense);
     }
 
 // UPDATE EXPENSE
-    public ExpenseDTO updateExpense(ExpenseDTO expenseDTO, Long id) {
-        Expense expense = expenseRepo.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Expense with given ID doesn't exist!"));
+    /**
+     * Overwrites the expense in one statement, provided it is still at {@code expectedVersion} (any version when null).
+     *
+     * @throws OptimisticLockingFailureException when another request changed the expense since that version
+     */
+    @Transactional
+    public VersionedExpense updateExpense(ExpenseDTO expenseDTO, Long id, Long expectedVersion) {
+        String owner = CurrentUser.username();
+        if (!categoryCache.exists(owner, expenseDTO.categoryId())) {
+            throw new IllegalArgumentException("Category with given ID doesn't exist!");
+        }
 
-        expense.setAmount(expenseDTO.amount());
-        expense.setDescription(expenseDTO.description());
-        expense.setDate(expenseDTO.date());
-        expense.setCategory(getCategory(expenseDTO.categoryId()));
+        List<Object> params = new ArrayList<>(List.of(
+                expenseDTO.amount(), expenseDTO.description(), expenseDTO.date(), expenseDTO.categoryId(), id, owner));
+        if (expectedVersion != null) {
+            params.add(expectedVersion);
+        }
+        List<PreviousState> updated = jdbcTemplate.query(
+                UPDATE_SQL + (expectedVersion != null ? " AND e.version = ?" : "") + UPDATE_RETURNING,
+                this::toPreviousState, params.toArray());
+        if (updated.isEmpty()) {
+            throw missingOrChanged(id, owner);
+        }
 
-        return toExpenseDTO(expenseRepo.save(expense));
+        PreviousState old = updated.getFirst();
+        boolean sameBucket = expenseDTO.categoryId().equals(old.categoryId())
+                && old.date().withDayOfMonth(1).equals(expenseDTO.date().withDayOfMonth(1));
+        if (sameBucket) {
+            if (expenseDTO.amount().compareTo(old.amount()) != 0) {
+                rollupService.applyDelta(old.categoryId(), old.date(), expenseDTO.amount().subtract(old.amount()), 0);
+            }
+        } else {
+            rollupService.applyDelta(old.categoryId(), old.date(), old.amount().negate(), -1);
+            rollupService.applyDelta(expenseDTO.categoryId(), expenseDTO.date(), expenseDTO.amount(), 1);
+        }
+        versionTracker.bump(owner);
+        return new VersionedExpense(
+                new ExpenseDTO(id, expenseDTO.amount(), expenseDTO.description(), expenseDTO.date(), expenseDTO.categoryId()),
+                old.version()
+        );
     }
 
 // DELETE EXPENSE
-    public void deleteExpense(Long id) {
-        expenseRepo.delete(
-                expenseRepo.findById(id)
-                        .orElseThrow(() -> new IllegalArgumentException("Expense with given ID doesn't exist!"))
-        );
+    /**
+     * Soft-deletes the expense in one statement, provided it is still at {@code expectedVersion} (any version when null).
+     *
+     * @throws OptimisticLockingFailureException when another request changed the expense since that version
+     */
+    @Transactional
+    public void deleteExpense(Long id, Long expectedVersion) {
+        String owner = CurrentUser.username();
+        List<Object> params = new ArrayList<>(List.of(id, owner));
+        if (expectedVersion != null) {
+            params.add(expectedVersion);
+        }
+        List<PreviousState> deleted = jdbcTemplate.query(
+                DELETE_SQL + (expectedVersion != null ? " AND version = ?" : "") + DELETE_RETURNING,
+                this::toPreviousState, params.toArray());
+        if (deleted.isEmpty()) {
+            throw missingOrChanged(id, owner);
+        }
+
+        PreviousState old = deleted.getFirst();
+        rollupService.applyDelta(old.categoryId(), old.date(), old.amount().negate(), -1);
+        versionTracker.bump(owner);
     }
 
 // GET ALL EXPENSES
     public List<ExpenseDTO> getAllExpenses() {
-        return expenseRepo.findAll()
-                .stream()
-                .map(this::toExpenseDTO)
-                .toList();
+        return recordRows("all", expenseRepo.findAllDTOs(CurrentUser.username()));
+    }
+
+// GET A PAGE OF EXPENSES (KEYSET)
+    public ExpensePageDTO getExpensePage(String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : size;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        // Fetch one extra row to know whether another page exists
+        PageRequest limit = PageRequest.ofSize(pageSize + 1);
+        String owner = CurrentUser.username();
+        List<ExpenseDTO> expenses;
+        if (cursor == null || cursor.isBlank()) {
+            expenses = expenseRepo.findFirstPage(owner, limit);
+        } else {
+            PagePosition last = decodeCursor(cursor);
+            expenses = expenseRepo.findPageAfter(owner, last.date(), last.id(), limit);
+        }
+
+        String nextCursor = null;
+        if (expenses.size() > pageSize) {
+            expenses = expenses.subList(0, pageSize);
+            nextCursor = encodeCursor(expenses.get(pageSize - 1));
+        }
+
+        return new ExpensePageDTO(recordRows("page", expenses), nextCursor);
     }
 
 // GET EXPENSE BY ID
-    public ExpenseDTO getExpenseById(Long id) {
-        return toExpenseDTO(
-                expenseRepo.findById(id)
-                        .orElseThrow(() -> new IllegalArgumentException("Expense with given ID doesn't exist!"))
-        );
+    public VersionedExpense getExpenseById(Long id) {
+        Expense expense = expenseRepo.findByIdAndOwner(id, CurrentUser.username())
+                .orElseThrow(() -> new IllegalArgumentException("Expense with given ID doesn't exist!"));
+        return new VersionedExpense(toExpenseDTO(expense), expense.getVersion());
     }
 
 // GET EXPENSES BY CATEGORY ID
     public List<ExpenseDTO> getExpensesByCategoryId(Integer id) {
-        List<Expense> expenses = expenseRepo.findByCategoryId(id);
+        List<ExpenseDTO> expenses = expenseRepo.findByCategoryId(CurrentUser.username(), id);
 
         if (expenses.isEmpty()) {
             throw new IllegalArgumentException("Category with given ID doesn't exist!");
         }
 
-        return expenses
-                .stream()
-                .map(this::toExpenseDTO)
-                .toList();
+        return recordRows("category", expenses);
     }
 
 // GET EXPENSES BY DATE RANGE
     public List<ExpenseDTO> getExpenseBetween(LocalDate start, LocalDate end) {
-        return expenseRepo.findByDateRange(start, end)
-                .stream()
-                .map(this::toExpenseDTO)
-                .toList();
+        return recordRows("date-range", expenseRepo.findByDateRange(CurrentUser.username(), start, end));
+    }
+
+// STREAM EXPENSES BY DATE RANGE
+    @Transactional(readOnly = true)
+    public void forEachExpenseBetween(LocalDate start, LocalDate end, Consumer<ExpenseDTO> consumer) {
+        try (Stream<ExpenseDTO> expenses = expenseRepo.streamByDateRange(CurrentUser.username(), start, end)) {
+            expenses.forEach(consumer);
+        }
     }
 
 // GET TOTAL EXPENSES FOR A CATEGORY
     public BigDecimal getTotalExpenseByCategoryId(Integer id) {
-        return expenseRepo.getTotalAmountByCategoryId(id);
+        if (!categoryCache.exists(CurrentUser.username(), id)) {
+            throw new IllegalArgumentException("Category with given ID doesn't exist!");
+        }
+        return rollupService.getTotalByCategoryId(id);
+    }
+
+// SUMMARIZE EXPENSES PER CATEGORY
+    public List<CategorySummaryDTO> getCategorySummary(LocalDate start, LocalDate end) {
+        return recordRows("summary-category", expenseRepo.summarizeByCategory(CurrentUser.username(), start, end)
+                .stream()
+                .map(this::toCategorySummaryDTO)
+                .toList());
+    }
+
+// SUMMARIZE EXPENSES PER DAY, WEEK OR MONTH
+    public List<PeriodSummaryDTO> getPeriodSummary(LocalDate start, LocalDate end, String granularity) {
+        Granularity unit;
+        try {
+            unit = Granularity.valueOf(granularity.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Granularity must be one of day, week or month");
+        }
+
+        return recordRows("summary-period", expenseRepo.summarizeByPeriod(CurrentUser.username(), unit.name().toLowerCase(Locale.ROOT), start, end)
+                .stream()
+                .map(this::toPeriodSummaryDTO)
+                .toList());
     }
 
 /*PRIVATE METHODS*/
 
-    private Category getCategory(Integer id){
-        return categoryRepo.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Category with given ID doesn't exist!"));
+    private record PagePosition(LocalDate date, Long id) {}
+
+    // Rows handed back per list call, so a query that starts returning far more than before shows up on a dashboard
+    private <T> List<T> recordRows(String query, List<T> rows) {
+        DistributionSummary.builder("expense.query.rows")
+                .description("Rows returned by expense list queries")
+                .tag("query", query)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(rows.size());
+        return rows;
     }
 
-    private Expense toExpense(ExpenseDTO dto) {
-        return new Expense(
-                dto.amount(),
-                dto.description(),
-                dto.date(),
-                getCategory(dto.categoryId())
+    private record PreviousState(BigDecimal amount, LocalDate date, Integer categoryId, long version) {}
+
+    private PreviousState toPreviousState(ResultSet rs, int rowNum) throws SQLException {
+        return new PreviousState(
+                rs.getBigDecimal("amount"),
+                rs.getObject("expense_date", LocalDate.class),
+                rs.getObject("category_id", Integer.class),
+                rs.getLong("version")
         );
     }
 
-    private Expense newDTOtoExpense(NewExpenseDTO dto) {
-        return new Expense(
+    // Tells a missing expense from one whose version no longer matches
+    private RuntimeException missingOrChanged(Long id, String owner) {
+        if (expenseRepo.findByIdAndOwner(id, owner).isEmpty()) {
+            return new IllegalArgumentException("Expense with given ID doesn't exist!");
+        }
+        return new OptimisticLockingFailureException("Expense was changed by another request");
+    }
+
+    private Category getCategory(String owner, Integer id){
+        if (!categoryCache.exists(owner, id)) {
+            throw new IllegalArgumentException("Category with given ID doesn't exist!");
+        }
+        // Known to exist, so an unloaded reference is enough to set the foreign key
+        return categoryRepo.getReferenceById(id);
+    }
+
+    private Expense newDTOtoExpense(NewExpenseDTO dto, String owner) {
+        Expense expense = new Expense(
                 dto.amount(),
                 dto.description(),
                 dto.date(),
-                getCategory(dto.categoryId())
+                getCategory(owner, dto.categoryId())
+        );
+        expense.setOwner(owner);
+        return expense;
+    }
+
+    private String encodeCursor(ExpenseDTO expense) {
+        String position = expense.date() + ":" + expense.id();
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private PagePosition decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf(':');
+            return new PagePosition(
+                    LocalDate.parse(position.substring(0, separator)),
+                    Long.parseLong(position.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid page cursor!");
+        }
+    }
+
+    private CategorySummaryDTO toCategorySummaryDTO(Object[] row) {
+        return new CategorySummaryDTO(
+                row[0] == null ? null : ((Number) row[0]).intValue(),
+                toBigDecimal(row[1]),
+                ((Number) row[2]).longValue(),
+                toBigDecimal(row[3]),
+                toBigDecimal(row[4]),
+                ((Number) row[5]).doubleValue()
+        );
+    }
+
+    private PeriodSummaryDTO toPeriodSummaryDTO(Object[] row) {
+        return new PeriodSummaryDTO(
+                row[0] instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) row[0],
+                toBigDecimal(row[1]),
+                ((Number) row[2]).longValue(),
+                toBigDecimal(row[3]),
+                toBigDecimal(row[4]),
+                ((Number) row[5]).doubleValue()
         );
     }
 
-    private ExpenseDTO toExpenseDTO(Expense expense) {
+    private BigDecimal toBigDecimal(Object value) {
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    // Package-private for the mapping benchmark
+    static ExpenseDTO toExpenseDTO(Expense expense) {
         return new ExpenseDTO(
                 expense.getId(),
                 expense.getAmount(),
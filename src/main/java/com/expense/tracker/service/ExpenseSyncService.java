@@ -0,0 +1,139 @@
+package com.expense.tracker.service;
+
+import com.expense.tracker.dto.ExpenseChangesDTO;
+import com.expense.tracker.dto.ExpenseDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Delta sync over the expenses table. Every write stamps its row with the id of the writing transaction
+ * (see the V5 migration) and deletes leave tombstones, so a client holding a watermark only downloads
+ * rows of their own changed after it. Reads stop at the oldest transaction still running: every id below it belongs
+ * to a finished transaction, which makes the watermark safe against commits landing out of order.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExpenseSyncService {
+
+    public static final int DEFAULT_LIMIT = 500;
+    public static final int MAX_LIMIT = 5_000;
+
+    private static final String HORIZON_SQL =
+            "SELECT CAST(CAST(pg_snapshot_xmin(pg_current_snapshot()) AS TEXT) AS BIGINT)";
+    private static final String CHANGES_SQL =
+            "SELECT id, amount, description, expense_date, category_id, deleted, change_xid " +
+            "FROM expenses " +
+            "WHERE owner = ? AND (change_xid, id) > (?, ?) AND change_xid < ? " +
+            "ORDER BY change_xid, id " +
+            "LIMIT ?";
+    private static final String PURGE_SQL =
+            "DELETE FROM expenses WHERE deleted AND updated_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.sync.tombstone-retention:P30D}")
+    private Duration tombstoneRetention;
+
+// GET CHANGES SINCE A WATERMARK
+    public ExpenseChangesDTO getChangesSince(String since, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_LIMIT : limit;
+        if (pageSize < 1 || pageSize > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        Watermark from = since == null || since.isBlank() ? Watermark.START : decode(since);
+        if (from.issuedAt().isBefore(Instant.now().minus(tombstoneRetention))) {
+            // Tombstones older than the retention may already be purged, so deletes could be missed
+            throw new IllegalStateException("Sync watermark expired, start again without one");
+        }
+
+        long horizon = jdbcTemplate.queryForObject(HORIZON_SQL, Long.class);
+        // One extra row tells whether the client should call again right away
+        List<Change> changes = jdbcTemplate.query(CHANGES_SQL, this::toChange,
+                CurrentUser.username(), from.changeXid(), from.id(), horizon, pageSize + 1);
+
+        boolean hasMore = changes.size() > pageSize;
+        if (hasMore) {
+            changes = changes.subList(0, pageSize);
+        }
+
+        List<ExpenseDTO> upserts = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        for (Change change : changes) {
+            if (change.deleted()) {
+                deletedIds.add(change.expense().id());
+            } else {
+                upserts.add(change.expense());
+            }
+        }
+
+        Watermark next;
+        if (hasMore) {
+            Change last = changes.get(pageSize - 1);
+            next = new Watermark(last.changeXid(), last.expense().id(), Instant.now());
+        } else if (horizon > from.changeXid()) {
+            next = new Watermark(horizon, 0L, Instant.now());
+        } else {
+            next = new Watermark(from.changeXid(), from.id(), Instant.now());
+        }
+        return new ExpenseChangesDTO(upserts, deletedIds, encode(next), hasMore);
+    }
+
+// PURGE OLD TOMBSTONES
+    @Scheduled(fixedDelayString = "${app.sync.purge-interval:PT1H}")
+    public void purgeTombstones() {
+        jdbcTemplate.update(PURGE_SQL, Timestamp.from(Instant.now().minus(tombstoneRetention)));
+    }
+
+/*PRIVATE METHODS*/
+
+    private record Change(ExpenseDTO expense, boolean deleted, long changeXid) {}
+
+    private record Watermark(long changeXid, long id, Instant issuedAt) {
+        static final Watermark START = new Watermark(-1L, 0L, Instant.MAX);
+    }
+
+    private Change toChange(ResultSet rs, int rowNum) throws SQLException {
+        ExpenseDTO expense = new ExpenseDTO(
+                rs.getLong("id"),
+                rs.getBigDecimal("amount"),
+                rs.getString("description"),
+                rs.getObject("expense_date", LocalDate.class),
+                rs.getObject("category_id", Integer.class)
+        );
+        return new Change(expense, rs.getBoolean("deleted"), rs.getLong("change_xid"));
+    }
+
+    private String encode(Watermark watermark) {
+        String value = watermark.changeXid() + ":" + watermark.id() + ":" + watermark.issuedAt().toEpochMilli();
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Watermark decode(String since) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(since), StandardCharsets.UTF_8).split(":");
+            return new Watermark(
+                    Long.parseLong(parts[0]),
+                    Long.parseLong(parts[1]),
+                    Instant.ofEpochMilli(Long.parseLong(parts[2]))
+            );
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid sync watermark!");
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.expense.tracker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counter of each user's expenses, used as the HTTP validator of every list derived from them so an
+ * unchanged list is answered with 304 before any query runs. The counters live in memory: validators carry
+ * this instance's id and roll over every {@code app.http.validator-max-age}, so writes made through other
+ * instances are picked up within that window.
+ */
+@Component
+public class ExpenseVersionTracker {
+
+    private final String instanceId = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final long maxAgeMillis;
+
+    // Versions are drawn from one sequence, so a user whose entry was evicted never gets an old version back
+    private final AtomicLong sequence = new AtomicLong();
+    private final Cache<String, Stamp> stamps;
+
+    public record Validator(String etag, long lastModified) {}
+
+    private record Stamp(long version, long lastModified) {}
+
+    public ExpenseVersionTracker(@Value("${app.http.validator-max-age:PT1M}") Duration maxAge) {
+        this.maxAgeMillis = maxAge.toMillis();
+        this.stamps = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(maxAge)
+                .build();
+    }
+
+    public Validator current(String owner) {
+        Stamp stamp = stamps.get(owner, key -> nextStamp());
+        long now = System.currentTimeMillis();
+        long window = now / maxAgeMillis;
+        // Weak, so Tomcat still compresses the response
+        String etag = "W/\"" + instanceId + "-" + stamp.version() + "-" + window + "\"";
+        return new Validator(etag, Math.max(stamp.lastModified(), window * maxAgeMillis));
+    }
+
+    /**
+     * Marks the owner's expenses as changed once the current transaction commits. Bumping any earlier would let
+     * a concurrent read pair the new version with the old rows and serve them as current indefinitely.
+     */
+    public void bump(String owner) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stamps.put(owner, nextStamp());
+                }
+            });
+        } else {
+            stamps.put(owner, nextStamp());
+        }
+    }
+
+    // For changes that touch every user's expenses at once
+    public void bumpAll() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stamps.invalidateAll();
+                }
+            });
+        } else {
+            stamps.invalidateAll();
+        }
+    }
+
+    private Stamp nextStamp() {
+        return new Stamp(sequence.incrementAndGet(), System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,173 @@
+package com.expense.tracker.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Idempotency-Key support for creating expenses. The key is claimed in the same transaction as the
+ * expenses the request creates and stored with its response, so a retried request is answered from
+ * the idempotency_keys table (see the V13 migration) without touching the expenses table. A retry that
+ * arrives while the original is still running waits on the claim and then gets the same response.
+ */
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private static final String FIND_SQL =
+            "SELECT request_hash, response_status, response_location, response_body FROM idempotency_keys " +
+            "WHERE owner = ? AND idempotency_key = ? AND created_at >= ?";
+    private static final String RELEASE_EXPIRED_SQL =
+            "DELETE FROM idempotency_keys WHERE owner = ? AND idempotency_key = ? AND created_at < ?";
+    // Waits for a transaction holding the same key, then inserts nothing if it committed
+    private static final String CLAIM_SQL =
+            "INSERT INTO idempotency_keys (owner, idempotency_key, request_hash) VALUES (?, ?, ?) " +
+            "ON CONFLICT DO NOTHING";
+    private static final String COMPLETE_SQL =
+            "UPDATE idempotency_keys SET response_status = ?, response_location = ?, response_body = ? " +
+            "WHERE owner = ? AND idempotency_key = ?";
+    private static final String PURGE_SQL =
+            "DELETE FROM idempotency_keys WHERE created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.idempotency.key-retention:P1D}")
+    private Duration keyRetention;
+
+    private record StoredResponse(byte[] requestHash, int status, String location, String body) {}
+
+// RUN A REQUEST ONCE PER KEY
+    /**
+     * Runs {@code action} in a transaction and stores its response under the caller's {@code key}, or
+     * replays the response stored by an earlier request with the same key. An exception from
+     * {@code action} releases the key, so the request can be retried once the cause is fixed.
+     *
+     * @param operation names the endpoint, so one key cannot replay the response of another
+     * @param request   the request body, fingerprinted to tell a retry from a different request
+     * @throws IllegalArgumentException when the key is blank or too long
+     * @throws IllegalStateException    when the key was already used for a different request
+     */
+    public ResponseEntity<?> execute(String key, String operation, Object request,
+                                     Callable<ResponseEntity<?>> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(KEY_HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String owner = CurrentUser.username();
+        byte[] requestHash = hash(operation, request);
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(keyRetention));
+
+        // Retries of a finished request are answered without opening a write transaction
+        List<StoredResponse> stored = find(owner, key, cutoff);
+        if (!stored.isEmpty()) {
+            return replay(stored.getFirst(), requestHash);
+        }
+
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.update(RELEASE_EXPIRED_SQL, owner, key, cutoff);
+            if (jdbcTemplate.update(CLAIM_SQL, owner, key, requestHash) == 0) {
+                List<StoredResponse> concurrent = find(owner, key, cutoff);
+                if (concurrent.isEmpty()) {
+                    throw new IllegalStateException(KEY_HEADER + " is in use by another request");
+                }
+                return replay(concurrent.getFirst(), requestHash);
+            }
+
+            ResponseEntity<?> response;
+            try {
+                response = action.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            URI location = response.getHeaders().getLocation();
+            jdbcTemplate.update(COMPLETE_SQL,
+                    response.getStatusCode().value(),
+                    location != null ? location.toString() : null,
+                    toJson(response.getBody()),
+                    owner, key);
+            return response;
+        });
+    }
+
+// PURGE EXPIRED KEYS
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval:PT1H}")
+    public void purgeExpiredKeys() {
+        jdbcTemplate.update(PURGE_SQL, Timestamp.from(Instant.now().minus(keyRetention)));
+    }
+
+/*PRIVATE METHODS*/
+
+    private List<StoredResponse> find(String owner, String key, Timestamp cutoff) {
+        return jdbcTemplate.query(FIND_SQL,
+                (rs, rowNum) -> new StoredResponse(
+                        rs.getBytes("request_hash"),
+                        rs.getInt("response_status"),
+                        rs.getString("response_location"),
+                        rs.getString("response_body")
+                ),
+                owner, key, cutoff);
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, byte[] requestHash) {
+        if (!MessageDigest.isEqual(stored.requestHash(), requestHash)) {
+            throw new IllegalStateException(KEY_HEADER + " was already used for a different request");
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(REPLAYED_HEADER, "true");
+        if (stored.location() != null) {
+            headers.setLocation(URI.create(stored.location()));
+        }
+        return new ResponseEntity<>(stored.body(), headers, HttpStatusCode.valueOf(stored.status()));
+    }
+
+    private byte[] hash(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            // Uploaded files are hashed as sent rather than through JSON
+            digest.update(request instanceof byte[] bytes ? bytes : objectMapper.writeValueAsBytes(request));
+            return digest.digest();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("Every JVM supports SHA-256", e);
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
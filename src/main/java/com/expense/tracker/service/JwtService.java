@@ -1,84 +1,203 @@
 package com.expense.tracker.service;
 
+import com.expense.tracker.config.JwtProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.impl.lang.Function;
-import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.InvalidKeyException;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Service
+@Timed("jwt.service")
 public class JwtService {
 
-    private final String SECRET_KEY;
-    private final long JWT_EXPIRATION_TIME = 1000 * 60 * 60; //1hour
+    private static final long CLAIMS_CACHE_SIZE = 10_000;
+    private static final String TOKEN_TYPE_CLAIM = "typ";
+    private static final String ACCESS_TOKEN = "access";
+    private static final String REFRESH_TOKEN = "refresh";
 
-    JwtService() {
-        SECRET_KEY = generateSecretKey();
+    private final String activeKeyId;
+    private final SecretKey signingKey;
+    // Every configured key by id, so tokens signed before a rotation stay valid until they expire
+    private final Map<String, SecretKey> verificationKeys;
+    private final Duration accessTokenTtl;
+    private final Duration refreshTokenTtl;
+
+    // Built once: key derivation and parser construction are too costly to repeat per request
+    private final JwtParser parser;
+    // Verified claims keyed by token digest, each entry living no longer than its token
+    private final Cache<String, Claims> claimsCache;
+
+    JwtService(JwtProperties properties) {
+        Map<String, SecretKey> keys = new HashMap<>();
+        if (properties.signingKeys() == null || properties.signingKeys().isEmpty()) {
+            // No shared keys configured: tokens are only valid on this instance and until it restarts
+            activeKeyId = "local-" + UUID.randomUUID();
+            keys.put(activeKeyId, generateSecretKey());
+        } else {
+            properties.signingKeys().forEach((id, secret) ->
+                    keys.put(id, Keys.hmacShaKeyFor(Base64.getDecoder().decode(secret))));
+            activeKeyId = properties.activeKeyId();
+            if (!keys.containsKey(activeKeyId)) {
+                throw new IllegalStateException("app.jwt.active-key-id must name one of app.jwt.signing-keys");
+            }
+        }
+        verificationKeys = Map.copyOf(keys);
+        signingKey = verificationKeys.get(activeKeyId);
+        accessTokenTtl = properties.accessTokenTtl();
+        refreshTokenTtl = properties.refreshTokenTtl();
+
+        parser = Jwts.parser()
+                .keyLocator(new SigningKeyLocator())
+                .build();
+        claimsCache = Caffeine.newBuilder()
+                .maximumSize(CLAIMS_CACHE_SIZE)
+                .expireAfter(new TokenExpiry())
+                .build();
     }
 
-    private String generateSecretKey() {
+    private SecretKey generateSecretKey() {
         try {
             KeyGenerator keyGen = KeyGenerator.getInstance("HmacSHA256");
-            SecretKey secretKey = keyGen.generateKey();
-            return Base64.getEncoder().encodeToString(secretKey.getEncoded());
+            return Keys.hmacShaKeyFor(keyGen.generateKey().getEncoded());
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("Error generating Key ", e);
         }
     }
 
-    public String generateToken(String username) {
-        Map<String, Object> claims = new HashMap<>();
+    public String generateAccessToken(String username) {
+        return generateToken(username, ACCESS_TOKEN, accessTokenTtl);
+    }
 
-        return Jwts.builder()
-                .claims(claims)
-                .subject(username)
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + JWT_EXPIRATION_TIME))
-                .signWith(getKey(), SignatureAlgorithm.HS256).compact();
+    public String generateRefreshToken(String username) {
+        return generateToken(username, REFRESH_TOKEN, refreshTokenTtl);
     }
 
-    private SecretKey getKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
-        return Keys.hmacShaKeyFor(keyBytes);
+    public Duration getAccessTokenTtl() {
+        return accessTokenTtl;
+    }
+
+    private String generateToken(String username, String type, Duration ttl) {
+        long now = System.currentTimeMillis();
+
+        return Jwts.builder()
+                .header().keyId(activeKeyId).and()
+                .id(UUID.randomUUID().toString())
+                .subject(username)
+                .claim(TOKEN_TYPE_CLAIM, type)
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + ttl.toMillis()))
+                .signWith(signingKey, Jwts.SIG.HS256).compact();
     }
 
     public String extractUsername(String token) {
         return extractClaims(token, Claims::getSubject);
     }
 
+    public String extractTokenId(String token) {
+        return extractClaims(token, Claims::getId);
+    }
+
+    public Instant extractExpiration(String token) {
+        return extractClaims(token, Claims::getExpiration).toInstant();
+    }
+
+    /**
+     * @throws io.jsonwebtoken.JwtException if the token is invalid, expired or an access token
+     */
+    public Claims parseRefreshToken(String token) {
+        Claims claims = extractAllClaims(token);
+        if (!REFRESH_TOKEN.equals(claims.get(TOKEN_TYPE_CLAIM))) {
+            throw new MalformedJwtException("Not a refresh token");
+        }
+        return claims;
+    }
+
     private <T> T extractClaims(String token, Function<Claims, T> claimResolver) {
         final Claims claims = extractAllClaims(token);
         return claimResolver.apply(claims);
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .setSigningKey(getKey())
-                .build()
-                .parseSignedClaims(token).getBody();
+        return claimsCache.get(
+                digest(token),
+                key -> parser.parseSignedClaims(token).getPayload()
+        );
+    }
+
+    private String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
+    // Only access tokens authenticate requests; refresh tokens are accepted by the refresh endpoint alone
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && isTokenNonExpired(token);
+        final Claims claims = extractAllClaims(token);
+        return ACCESS_TOKEN.equals(claims.get(TOKEN_TYPE_CLAIM))
+                && claims.getSubject().equals(userDetails.getUsername())
+                && claims.getExpiration().after(new Date());
     }
 
-    private boolean isTokenNonExpired(String token) {
-        return extractExpiration(token).after(new Date());
+    private class SigningKeyLocator extends LocatorAdapter<Key> {
+
+        @Override
+        protected Key locate(JwsHeader header) {
+            SecretKey key = header.getKeyId() == null ? null : verificationKeys.get(header.getKeyId());
+            if (key == null) {
+                throw new InvalidKeyException("Unknown signing key id: " + header.getKeyId());
+            }
+            return key;
+        }
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaims(token, Claims::getExpiration);
+    private static class TokenExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            long remainingMillis = claims.getExpiration() == null
+                    ? 0
+                    : claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
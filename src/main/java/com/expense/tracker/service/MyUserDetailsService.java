@@ -2,22 +2,62 @@ package com.expense.tracker.service;
 
 import com.expense.tracker.model.User;
 import com.expense.tracker.repository.UserRepo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
 @Service
 @RequiredArgsConstructor
-public class MyUserDetailsService implements UserDetailsService {
+public class MyUserDetailsService implements UserDetailsService, UserDetailsPasswordService, MeterBinder {
+
+    private static final long USER_CACHE_SIZE = 10_000;
+    private static final Duration USER_CACHE_TTL = Duration.ofMinutes(5);
 
     private final UserRepo repo;
 
+    // Every authenticated request resolves its user, so keep recent ones out of the database
+    private final Cache<String, UserDetails> userCache = Caffeine.newBuilder()
+            .maximumSize(USER_CACHE_SIZE)
+            .expireAfterWrite(USER_CACHE_TTL)
+            .recordStats()
+            .build();
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 //        return repo.findById(username).orElse(new User());
-        return repo.findByUsername(username).orElse(new User());
+        // Unknown users are not cached, the loader returning null leaves no entry behind
+        UserDetails user = userCache.get(username, key -> repo.findByUsername(key).orElse(null));
+        return user != null ? user : new User();
+    }
+
+    // Called after a successful login whose stored hash needs upgrading to the current encoder settings
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User stored = repo.findById(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException(user.getUsername()));
+        stored.setPassword(newPassword);
+        repo.save(stored);
+        evict(stored.getUsername());
+        return stored;
+    }
+
+    public void evict(String username) {
+        userCache.invalidate(username);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, userCache, "userDetails");
     }
 
-}
\ No newline at end of file
+}
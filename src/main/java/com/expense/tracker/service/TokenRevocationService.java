@@ -0,0 +1,128 @@
+package com.expense.tracker.service;
+
+import com.expense.tracker.model.RevokedToken;
+import com.expense.tracker.repository.RevokedTokenRepo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Revoked token ids, persisted in {@code revoked_tokens} and mirrored in memory on every instance.
+ * Lookups happen on every authenticated request: a fixed-size Bloom filter rules out almost all
+ * tokens (those never revoked) and only its rare positives consult the exact set.
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenRevocationService {
+
+    private static final int BLOOM_BITS = 1 << 20; // 128 KiB, under 1% false positives up to ~100k revocations
+    private static final int BLOOM_HASHES = 7;
+    // Revocation timestamps come from the database clock, so re-read a margin to tolerate skew between instances
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    private final RevokedTokenRepo revokedTokenRepo;
+
+    // Token id -> expiry; entries are dropped once the token could no longer be used anyway
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloomFilter = new BloomFilter();
+    private Instant lastSync = Instant.EPOCH;
+
+    public boolean isRevoked(String tokenId) {
+        return tokenId != null && bloomFilter.mightContain(tokenId) && revoked.containsKey(tokenId);
+    }
+
+    /**
+     * @return false if the token had already been revoked, here or by another instance
+     */
+    @Transactional
+    public boolean revoke(String tokenId, Instant expiresAt) {
+        boolean inserted = revokedTokenRepo.insertIfAbsent(tokenId, expiresAt) > 0;
+        remember(tokenId, expiresAt);
+        return inserted;
+    }
+
+    // Picks up revocations made by other instances and forgets expired ones
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.jwt.revocation-sync-interval:PT15S}")
+    @Transactional
+    public void synchronize() {
+        Instant now = Instant.now();
+        Instant since;
+        synchronized (this) {
+            since = lastSync.equals(Instant.EPOCH) ? Instant.EPOCH : lastSync.minus(SYNC_OVERLAP);
+            lastSync = now;
+        }
+
+        for (RevokedToken token : revokedTokenRepo.findRevokedSince(since, now)) {
+            remember(token.getTokenId(), token.getExpiresAt());
+        }
+
+        if (revoked.values().removeIf(expiresAt -> expiresAt.isBefore(now))) {
+            // Bloom filters cannot forget, so start a fresh one from the remaining ids
+            synchronized (this) {
+                BloomFilter rebuilt = new BloomFilter();
+                revoked.keySet().forEach(rebuilt::add);
+                bloomFilter = rebuilt;
+            }
+        }
+        revokedTokenRepo.deleteExpired(now);
+    }
+
+/*PRIVATE METHODS*/
+
+    private synchronized void remember(String tokenId, Instant expiresAt) {
+        if (expiresAt.isAfter(Instant.now())) {
+            revoked.put(tokenId, expiresAt);
+            bloomFilter.add(tokenId);
+        }
+    }
+
+    private static final class BloomFilter {
+
+        private final AtomicLongArray words = new AtomicLongArray(BLOOM_BITS / Long.SIZE);
+
+        void add(String value) {
+            long hash = fnv1a(value);
+            int step = value.hashCode() | 1;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = bitIndex(hash, step, i);
+                words.getAndUpdate(bit / Long.SIZE, word -> word | (1L << bit));
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = fnv1a(value);
+            int step = value.hashCode() | 1;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = bitIndex(hash, step, i);
+                if ((words.get(bit / Long.SIZE) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Double hashing: the i-th probe is h1 + i * h2
+        private static int bitIndex(long hash, int step, int i) {
+            return (int) ((hash + (long) i * step) & (BLOOM_BITS - 1));
+        }
+
+        private static long fnv1a(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+}
@@ -1,27 +1,90 @@
 package com.expense.tracker.service;
 
+import com.expense.tracker.dto.LoginRequestDTO;
 import com.expense.tracker.dto.RegistrationRequestDTO;
+import com.expense.tracker.dto.TokenResponseDTO;
 import com.expense.tracker.model.User;
 import com.expense.tracker.repository.UserRepo;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.persistence.EntityExistsException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
     private final UserRepo userRepo;
-    private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(12);
+    private final MyUserDetailsService userDetailsService;
+    private final PasswordEncoder encoder;
+    private final AuthenticationManager authMgr;
+    private final JwtService jwtService;
+    private final PasswordHashingExecutor hashingExecutor;
+    private final TokenRevocationService revocationService;
+
+    public CompletableFuture<Void> register(RegistrationRequestDTO requestDTO) {
+        return hashingExecutor.submit(() -> {
+            User user = toUser(requestDTO);
+            if (userRepo.existsById(user.getUsername())) {
+                throw new EntityExistsException();
+            }
+            user.setPassword(encoder.encode(user.getPassword()));
+            userRepo.save(user);
+            userDetailsService.evict(user.getUsername());
+            return null;
+        });
+    }
+
+    // Hashes outdated by a raised cost factor or a new default algorithm are replaced during authentication
+    public CompletableFuture<TokenResponseDTO> login(LoginRequestDTO requestDTO) {
+        return hashingExecutor.submit(() -> {
+            authMgr.authenticate(new UsernamePasswordAuthenticationToken(requestDTO.username(), requestDTO.password()));
+            return issueTokens(requestDTO.username());
+        });
+    }
+
+    // Refresh tokens are single-use: each refresh revokes the presented token and hands out a new pair
+    public TokenResponseDTO refresh(String refreshToken) {
+        Claims claims = jwtService.parseRefreshToken(refreshToken);
+        if (!userRepo.existsById(claims.getSubject())) {
+            throw new BadCredentialsException("User no longer exists");
+        }
+        if (!revocationService.revoke(claims.getId(), claims.getExpiration().toInstant())) {
+            throw new BadCredentialsException("Refresh token already used or revoked");
+        }
+        return issueTokens(claims.getSubject());
+    }
+
+    public void logout(String accessToken, String refreshToken) {
+        revokeIfValid(accessToken);
+        revokeIfValid(refreshToken);
+    }
 
-    public void register(RegistrationRequestDTO requestDTO) {
-        User user = toUser(requestDTO);
-        if (userRepo.existsById(user.getUsername())) {
-            throw new EntityExistsException();
+    private TokenResponseDTO issueTokens(String username) {
+        return new TokenResponseDTO(
+                jwtService.generateAccessToken(username),
+                jwtService.generateRefreshToken(username),
+                "Bearer",
+                jwtService.getAccessTokenTtl().toSeconds()
+        );
+    }
+
+    private void revokeIfValid(String token) {
+        if (token == null || token.isBlank()) {
+            return;
+        }
+        try {
+            revocationService.revoke(jwtService.extractTokenId(token), jwtService.extractExpiration(token));
+        } catch (JwtException e) {
+            // Expired or forged tokens are rejected anyway
         }
-        user.setPassword(encoder.encode(user.getPassword()));
-        userRepo.save(user);
     }
 
     private User toUser(RegistrationRequestDTO dto) {
@@ -0,0 +1,51 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Indexes behind GET api/expenses/search. Written in Java because Postgres cannot build an index
+ * CONCURRENTLY on a partitioned table: those (db/partitioning) get a plain build instead.
+ */
+public class V11__expense_search_indexes extends BaseJavaMigration {
+
+    private static final String[] INDEXES = {
+            // Word and word-prefix matches; btree_gin lets the owner lead so a search only touches one user's rows
+            "idx_expense_description_fts ON expenses USING gin (owner, to_tsvector('simple', description)) " +
+                    "WHERE NOT deleted",
+            // Substring matches anywhere in a description
+            "idx_expense_description_trgm ON expenses USING gin (owner, description gin_trgm_ops) " +
+                    "WHERE NOT deleted"
+    };
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        try (Statement statement = context.getConnection().createStatement()) {
+            // Both are trusted extensions, so the database owner can create them
+            statement.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            statement.execute("CREATE EXTENSION IF NOT EXISTS btree_gin");
+
+            String create = isPartitioned(statement) ? "CREATE INDEX IF NOT EXISTS " : "CREATE INDEX CONCURRENTLY IF NOT EXISTS ";
+            for (String index : INDEXES) {
+                statement.execute(create + index);
+            }
+        }
+    }
+
+    private boolean isPartitioned(Statement statement) throws SQLException {
+        try (ResultSet result = statement.executeQuery(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('expenses'))")) {
+            result.next();
+            return result.getBoolean(1);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+-- Expenses moved out of a date-partitioned expenses table (db/partitioning/by-date) end up here.
+-- Only what the aggregates read is kept; the rows are never updated, so pages are packed full.
+
+CREATE TABLE IF NOT EXISTS expense_archive (
+    id           BIGINT         NOT NULL,
+    owner        VARCHAR(15),
+    category_id  INTEGER,
+    expense_date DATE           NOT NULL,
+    amount       NUMERIC(10, 2) NOT NULL,
+    description  VARCHAR(255)   NOT NULL,
+    archived_at  TIMESTAMPTZ    NOT NULL DEFAULT now(),
+    CONSTRAINT pk_expense_archive PRIMARY KEY (id),
+    CONSTRAINT fk_expense_archive_category
+        FOREIGN KEY (category_id) REFERENCES categories (id) ON DELETE SET NULL
+) WITH (fillfactor = 100);
+
+-- Summaries over a user's date range
+CREATE INDEX IF NOT EXISTS idx_expense_archive_owner_date
+    ON expense_archive (owner, expense_date) INCLUDE (amount, category_id);
@@ -0,0 +1,14 @@
+-- Outcome of every expense stored from the write-behind queue, written in the same transaction as the
+-- expense itself. A queued expense replayed after a crash finds its receipt and is not stored twice.
+
+CREATE TABLE IF NOT EXISTS expense_ingest_receipts (
+    tracking_id  UUID         NOT NULL,
+    owner        VARCHAR(15)  NOT NULL,
+    expense_id   BIGINT,
+    error        VARCHAR(255),
+    processed_at TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    CONSTRAINT pk_expense_ingest_receipts PRIMARY KEY (tracking_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_expense_ingest_receipts_processed_at
+    ON expense_ingest_receipts (processed_at);
@@ -0,0 +1,16 @@
+-- Idempotency-Key store for expense creation. A key is claimed in the same transaction as the expenses it
+-- creates, so a retry either waits for that transaction or replays its stored response. Only the
+-- SHA-256 of the request is kept, to tell a retry from a different request reusing the key.
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    owner             VARCHAR(15)  NOT NULL,
+    idempotency_key   VARCHAR(255) NOT NULL,
+    request_hash      BYTEA        NOT NULL,
+    response_status   SMALLINT,
+    response_location VARCHAR(255),
+    response_body     TEXT,
+    created_at        TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    CONSTRAINT pk_idempotency_keys PRIMARY KEY (owner, idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created_at ON idempotency_keys (created_at);
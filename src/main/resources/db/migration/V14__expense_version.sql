@@ -0,0 +1,4 @@
+-- Optimistic locking for expenses: every update and soft delete bumps the version, and clients send it back in
+-- If-Match. The constant default makes this a catalog-only change, with no table rewrite.
+
+ALTER TABLE expenses ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,9 @@
+-- Deleting a category tombstones its live expenses, so they leave every summary. Archived expenses of the
+-- category now go with it as well, instead of staying in expense_ledger with no category.
+
+ALTER TABLE expense_archive DROP CONSTRAINT IF EXISTS fk_expense_archive_category;
+ALTER TABLE expense_archive ADD CONSTRAINT fk_expense_archive_category
+    FOREIGN KEY (category_id) REFERENCES categories (id) ON DELETE CASCADE;
+
+-- Lets a category delete find its archived expenses without reading the whole archive
+CREATE INDEX IF NOT EXISTS idx_expense_archive_category ON expense_archive (category_id);
@@ -0,0 +1,42 @@
+-- Schema as previously generated by hibernate.ddl-auto=update.
+-- Existing databases are baselined at this version and skip it.
+
+CREATE TABLE _user (
+    username VARCHAR(15)  NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    role     VARCHAR(10)  NOT NULL,
+    CONSTRAINT pk_user PRIMARY KEY (username)
+);
+
+CREATE SEQUENCE categories_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE categories (
+    id   INTEGER     NOT NULL,
+    name VARCHAR(50) NOT NULL,
+    CONSTRAINT pk_categories PRIMARY KEY (id),
+    CONSTRAINT uk_categories_name UNIQUE (name)
+);
+
+CREATE SEQUENCE expenses_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE expenses (
+    id           BIGINT         NOT NULL,
+    amount       NUMERIC(10, 2) NOT NULL,
+    description  VARCHAR(255)   NOT NULL,
+    expense_date DATE           NOT NULL,
+    category_id  INTEGER,
+    CONSTRAINT pk_expenses PRIMARY KEY (id),
+    CONSTRAINT uk_expenses_description UNIQUE (description),
+    CONSTRAINT fk_expenses_category FOREIGN KEY (category_id) REFERENCES categories (id)
+);
+
+CREATE INDEX idx_expense_date ON expenses (expense_date);
+CREATE INDEX idx_expense_date_id ON expenses (expense_date, id);
+
+CREATE TABLE expense_monthly_rollups (
+    category_id   INTEGER        NOT NULL,
+    month_start   DATE           NOT NULL,
+    total_amount  NUMERIC(14, 2) NOT NULL,
+    expense_count BIGINT         NOT NULL,
+    CONSTRAINT pk_expense_monthly_rollups PRIMARY KEY (category_id, month_start)
+);
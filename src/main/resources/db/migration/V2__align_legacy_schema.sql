@@ -0,0 +1,19 @@
+-- Brings databases created by older ddl-auto builds up to the V1 layout. Every step is idempotent.
+
+-- IDENTITY keys were replaced by pooled sequences; start them past the ids already handed out
+CREATE SEQUENCE IF NOT EXISTS categories_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS expenses_seq START WITH 1 INCREMENT BY 50;
+
+ALTER TABLE categories ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE expenses ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+SELECT setval('categories_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM categories), (SELECT last_value FROM categories_seq)));
+SELECT setval('expenses_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM expenses), (SELECT last_value FROM expenses_seq)));
+
+CREATE TABLE IF NOT EXISTS expense_monthly_rollups (
+    category_id   INTEGER        NOT NULL,
+    month_start   DATE           NOT NULL,
+    total_amount  NUMERIC(14, 2) NOT NULL,
+    expense_count BIGINT         NOT NULL,
+    CONSTRAINT pk_expense_monthly_rollups PRIMARY KEY (category_id, month_start)
+);
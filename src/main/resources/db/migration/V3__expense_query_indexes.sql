@@ -0,0 +1,14 @@
+-- Indexes shaped after the ExpenseRepo queries. CONCURRENTLY keeps the table writable while they build,
+-- which makes Flyway run this script outside a transaction.
+
+-- findByCategoryId, and an index-only SUM(amount) per category
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expense_category_date
+    ON expenses (category_id, expense_date) INCLUDE (amount);
+
+-- Keyset pages seek on (expense_date, id); range summaries read amount and category without the heap
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expense_date_id_covering
+    ON expenses (expense_date, id) INCLUDE (amount, category_id);
+
+-- Both are prefixes of the covering index above
+DROP INDEX CONCURRENTLY IF EXISTS idx_expense_date_id;
+DROP INDEX CONCURRENTLY IF EXISTS idx_expense_date;
@@ -0,0 +1,13 @@
+-- Revoked access and refresh token ids, shared by all instances.
+-- Rows are only needed until the token would have expired anyway and are pruned after that.
+
+CREATE TABLE revoked_tokens (
+    token_id   VARCHAR(36) NOT NULL,
+    expires_at TIMESTAMPTZ NOT NULL,
+    revoked_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    CONSTRAINT pk_revoked_tokens PRIMARY KEY (token_id)
+);
+
+-- Incremental sync between instances reads recent revocations; pruning deletes by expiry
+CREATE INDEX idx_revoked_tokens_revoked_at ON revoked_tokens (revoked_at);
+CREATE INDEX idx_revoked_tokens_expires_at ON revoked_tokens (expires_at);
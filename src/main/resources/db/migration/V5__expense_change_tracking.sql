@@ -0,0 +1,39 @@
+-- Delta sync: every expense write records the id of its transaction, and deletes become tombstones.
+-- Constant defaults keep these ALTERs metadata-only on large tables; existing rows start at change_xid 0.
+
+ALTER TABLE expenses ADD COLUMN IF NOT EXISTS deleted    BOOLEAN     NOT NULL DEFAULT false;
+ALTER TABLE expenses ADD COLUMN IF NOT EXISTS updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
+ALTER TABLE expenses ADD COLUMN IF NOT EXISTS change_xid BIGINT      NOT NULL DEFAULT 0;
+
+-- Set by the database rather than the application so JPA, JDBC batch and ad-hoc writes are all tracked.
+-- A transaction id is final once it drops below the snapshot xmin, which gives readers a gap-free watermark.
+CREATE OR REPLACE FUNCTION expenses_track_change() RETURNS trigger AS $$
+BEGIN
+    NEW.change_xid := CAST(CAST(pg_current_xact_id() AS TEXT) AS BIGINT);
+    NEW.updated_at := now();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_expenses_track_change ON expenses;
+CREATE TRIGGER trg_expenses_track_change
+    BEFORE INSERT OR UPDATE ON expenses
+    FOR EACH ROW EXECUTE FUNCTION expenses_track_change();
+
+-- Tombstones outlive their category, so deleting a category detaches them instead of failing
+DO $$
+DECLARE
+    fk record;
+BEGIN
+    FOR fk IN
+        SELECT con.conname
+        FROM pg_constraint con
+        JOIN pg_attribute att ON att.attrelid = con.conrelid AND att.attnum = ANY (con.conkey)
+        WHERE con.conrelid = 'expenses'::regclass AND con.contype = 'f' AND att.attname = 'category_id'
+    LOOP
+        EXECUTE format('ALTER TABLE expenses DROP CONSTRAINT %I', fk.conname);
+    END LOOP;
+END $$;
+
+ALTER TABLE expenses ADD CONSTRAINT fk_expenses_category
+    FOREIGN KEY (category_id) REFERENCES categories (id) ON DELETE SET NULL;
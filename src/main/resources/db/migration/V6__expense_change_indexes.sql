@@ -0,0 +1,9 @@
+-- Built CONCURRENTLY, so Flyway runs this script outside a transaction.
+
+-- GET api/expenses/changes seeks on (change_xid, id)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expense_change
+    ON expenses (change_xid, id);
+
+-- Tombstones must not block reusing a description; replaces the table-wide unique constraint dropped in V7
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_expenses_description_live
+    ON expenses (description) WHERE NOT deleted;
@@ -0,0 +1,17 @@
+-- uk_expenses_description_live (V6) now enforces uniqueness among live rows.
+-- Databases created by ddl-auto carry a generated constraint name, so look it up.
+
+DO $$
+DECLARE
+    uk record;
+BEGIN
+    FOR uk IN
+        SELECT con.conname
+        FROM pg_constraint con
+        JOIN pg_attribute att ON att.attrelid = con.conrelid AND att.attnum = ANY (con.conkey)
+        WHERE con.conrelid = 'expenses'::regclass AND con.contype = 'u'
+          AND att.attname = 'description' AND cardinality(con.conkey) = 1
+    LOOP
+        EXECUTE format('ALTER TABLE expenses DROP CONSTRAINT %I', uk.conname);
+    END LOOP;
+END $$;
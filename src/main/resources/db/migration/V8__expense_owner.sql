@@ -0,0 +1,29 @@
+-- Expenses and categories belong to the user that created them.
+-- Rows that predate ownership go to ${legacy_owner} (app.legacy-owner); when that is empty they stay
+-- unowned, which hides them from every user until an operator assigns them.
+
+ALTER TABLE categories ADD COLUMN IF NOT EXISTS owner VARCHAR(15);
+ALTER TABLE expenses ADD COLUMN IF NOT EXISTS owner VARCHAR(15);
+
+-- Guarded so an empty placeholder does not rewrite every row (and fire the change trigger) for nothing
+UPDATE categories SET owner = '${legacy_owner}' WHERE owner IS NULL AND '${legacy_owner}' <> '';
+UPDATE expenses SET owner = '${legacy_owner}' WHERE owner IS NULL AND '${legacy_owner}' <> '';
+
+-- Category names are now unique per owner. Databases created by ddl-auto carry a generated
+-- constraint name, so look it up.
+DO $$
+DECLARE
+    uk record;
+BEGIN
+    FOR uk IN
+        SELECT con.conname
+        FROM pg_constraint con
+        JOIN pg_attribute att ON att.attrelid = con.conrelid AND att.attnum = ANY (con.conkey)
+        WHERE con.conrelid = 'categories'::regclass AND con.contype = 'u'
+          AND att.attname = 'name' AND cardinality(con.conkey) = 1
+    LOOP
+        EXECUTE format('ALTER TABLE categories DROP CONSTRAINT %I', uk.conname);
+    END LOOP;
+END $$;
+
+ALTER TABLE categories ADD CONSTRAINT uk_categories_owner_name UNIQUE (owner, name);
@@ -0,0 +1,20 @@
+-- Built CONCURRENTLY, so Flyway runs this script outside a transaction.
+-- Every expense query is scoped to one owner, so the owner leads each index and a user's rows
+-- form one contiguous range no matter how many other users share the table.
+
+-- Keyset pages, date ranges, exports and summaries: seek on (owner, expense_date, id) without a heap fetch
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expense_owner_date_id
+    ON expenses (owner, expense_date, id) INCLUDE (amount, category_id);
+
+-- GET api/expenses/changes
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expense_owner_change
+    ON expenses (owner, change_xid, id);
+
+-- Descriptions are unique per owner among live rows
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_expenses_owner_description_live
+    ON expenses (owner, description) WHERE NOT deleted;
+
+-- Superseded by the owner-leading indexes above
+DROP INDEX CONCURRENTLY IF EXISTS uk_expenses_description_live;
+DROP INDEX CONCURRENTLY IF EXISTS idx_expense_change;
+DROP INDEX CONCURRENTLY IF EXISTS idx_expense_date_id_covering;
@@ -0,0 +1,12 @@
+-- Runs after every migrate. beforeEachMigrate.sql drops this view so the partitioning scripts can swap the
+-- expenses table, so it is recreated here rather than in a versioned migration.
+
+-- Every expense that counts towards totals: live rows plus the archive. Summaries and the monthly
+-- rollup read from here, so archiving a partition does not change any aggregate.
+CREATE OR REPLACE VIEW expense_ledger AS
+SELECT id, owner, category_id, expense_date, amount
+FROM expenses
+WHERE NOT deleted
+UNION ALL
+SELECT id, owner, category_id, expense_date, amount
+FROM expense_archive;
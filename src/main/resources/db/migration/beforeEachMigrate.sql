@@ -0,0 +1,3 @@
+-- Runs before each pending migration. The partitioning scripts replace the expenses table, which a view
+-- over it would block, so the view is dropped here and recreated by afterMigrate.sql once migrate finishes.
+DROP VIEW IF EXISTS expense_ledger;
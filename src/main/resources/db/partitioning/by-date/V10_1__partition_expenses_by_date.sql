@@ -0,0 +1,141 @@
+-- Opt-in: range-partitions expenses by expense_date, one partition per ${expense_partition_unit}
+-- (app.expenses.partition-unit, month or year). Enabled by adding classpath:db/partitioning/by-date to
+-- spring.flyway.locations (plus spring.flyway.out-of-order=true on a database already past V10).
+-- Rewrites the whole table under an exclusive lock, so run it in a maintenance window.
+-- ExpensePartitionMaintainer keeps partitions ahead of the calendar and archives old ones.
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'expenses'::regclass) THEN
+        RAISE EXCEPTION 'expenses is already partitioned; owner-hash and by-date partitioning cannot be combined';
+    END IF;
+    IF '${expense_partition_unit}' NOT IN ('month', 'year') THEN
+        RAISE EXCEPTION 'app.expenses.partition-unit must be month or year';
+    END IF;
+END $$;
+
+LOCK TABLE expenses IN ACCESS EXCLUSIVE MODE;
+-- Recreated by afterMigrate.sql
+DROP VIEW IF EXISTS expense_ledger;
+
+ALTER TABLE expenses RENAME TO expenses_unpartitioned;
+ALTER TABLE expenses_unpartitioned RENAME CONSTRAINT pk_expenses TO pk_expenses_unpartitioned;
+ALTER INDEX idx_expense_category_date RENAME TO idx_expense_category_date_unpartitioned;
+ALTER INDEX idx_expense_owner_date_id RENAME TO idx_expense_owner_date_id_unpartitioned;
+ALTER INDEX idx_expense_owner_change RENAME TO idx_expense_owner_change_unpartitioned;
+ALTER INDEX uk_expenses_owner_description_live RENAME TO uk_expenses_owner_description_live_unpartitioned;
+
+CREATE TABLE expenses (LIKE expenses_unpartitioned INCLUDING DEFAULTS) PARTITION BY RANGE (expense_date);
+-- Catches dates no partition covers yet, such as typos far in the past or future
+CREATE TABLE expenses_default PARTITION OF expenses DEFAULT;
+
+-- Creates the missing partitions for every period overlapping [from_date, to_date]. A period whose rows
+-- already sit in expenses_default is skipped with a warning: move them out first.
+CREATE OR REPLACE FUNCTION expenses_create_partitions(from_date DATE, to_date DATE) RETURNS INTEGER AS $$
+DECLARE
+    unit        CONSTANT TEXT     := '${expense_partition_unit}';
+    step        CONSTANT INTERVAL := CAST('1 ' || unit AS INTERVAL);
+    lower_bound DATE              := CAST(date_trunc(unit, from_date) AS DATE);
+    upper_bound DATE;
+    part_name   TEXT;
+    created     INTEGER           := 0;
+BEGIN
+    WHILE lower_bound <= to_date LOOP
+        upper_bound := CAST(lower_bound + step AS DATE);
+        part_name := 'expenses_' || to_char(lower_bound, CASE unit WHEN 'month' THEN '"y"YYYY"m"MM' ELSE '"y"YYYY' END);
+        IF to_regclass(part_name) IS NULL THEN
+            IF EXISTS (SELECT 1 FROM expenses_default WHERE expense_date >= lower_bound AND expense_date < upper_bound) THEN
+                RAISE WARNING 'Rows dated % to % are in expenses_default, not creating %', lower_bound, upper_bound, part_name;
+            ELSE
+                EXECUTE format('CREATE TABLE %I PARTITION OF expenses FOR VALUES FROM (%L) TO (%L)',
+                               part_name, lower_bound, upper_bound);
+                created := created + 1;
+            END IF;
+        END IF;
+        lower_bound := upper_bound;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT expenses_create_partitions(
+        COALESCE((SELECT min(expense_date) FROM expenses_unpartitioned), CURRENT_DATE),
+        CAST(CURRENT_DATE + CAST('1 ${expense_partition_unit}' AS INTERVAL) AS DATE));
+
+INSERT INTO expenses SELECT * FROM expenses_unpartitioned;
+DROP TABLE expenses_unpartitioned;
+
+-- Keys of a partitioned table must include the partition key
+ALTER TABLE expenses ADD CONSTRAINT pk_expenses PRIMARY KEY (id, expense_date);
+CREATE INDEX idx_expense_category_date ON expenses (category_id, expense_date) INCLUDE (amount);
+CREATE INDEX idx_expense_owner_date_id ON expenses (owner, expense_date, id) INCLUDE (amount, category_id);
+CREATE INDEX idx_expense_owner_change ON expenses (owner, change_xid, id);
+
+ALTER TABLE expenses ADD CONSTRAINT fk_expenses_category
+    FOREIGN KEY (category_id) REFERENCES categories (id) ON DELETE SET NULL;
+
+CREATE TRIGGER trg_expenses_track_change
+    BEFORE INSERT OR UPDATE ON expenses
+    FOR EACH ROW EXECUTE FUNCTION expenses_track_change();
+
+-- A unique index cannot span range partitions without including expense_date, so live descriptions are
+-- claimed in a side table instead. Its key carries the index's old name, so a duplicate reports the
+-- same constraint as before.
+CREATE TABLE expense_description_keys (
+    owner       VARCHAR(15)  NOT NULL,
+    description VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_expenses_owner_description_live PRIMARY KEY (owner, description)
+);
+
+INSERT INTO expense_description_keys (owner, description)
+SELECT DISTINCT owner, description FROM expenses WHERE NOT deleted AND owner IS NOT NULL;
+
+CREATE OR REPLACE FUNCTION expenses_claim_description() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') AND NOT OLD.deleted AND OLD.owner IS NOT NULL THEN
+        DELETE FROM expense_description_keys WHERE owner = OLD.owner AND description = OLD.description;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NOT NEW.deleted AND NEW.owner IS NOT NULL THEN
+        INSERT INTO expense_description_keys (owner, description) VALUES (NEW.owner, NEW.description);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_expenses_claim_description
+    AFTER INSERT OR UPDATE OR DELETE ON expenses
+    FOR EACH ROW EXECUTE FUNCTION expenses_claim_description();
+
+-- Moves every partition that ends on or before the given date into expense_archive and drops it.
+-- Tombstones are discarded and archived descriptions become free for reuse. Totals are unchanged,
+-- since expense_ledger and the monthly rollup include the archive.
+CREATE OR REPLACE FUNCTION expenses_archive_partitions(cutoff DATE) RETURNS INTEGER AS $$
+DECLARE
+    part     RECORD;
+    archived INTEGER := 0;
+BEGIN
+    FOR part IN
+        SELECT bounds.part_name, bounds.upper_bound
+        FROM (
+            SELECT CAST(child.oid AS REGCLASS) AS part_name,
+                   CAST(substring(pg_get_expr(child.relpartbound, child.oid) FROM 'TO \(''([0-9-]+)''\)') AS DATE) AS upper_bound
+            FROM pg_inherits inh
+            JOIN pg_class child ON child.oid = inh.inhrelid
+            WHERE inh.inhparent = CAST('expenses' AS REGCLASS)
+        ) bounds
+        WHERE bounds.upper_bound <= cutoff
+        ORDER BY bounds.upper_bound
+    LOOP
+        EXECUTE format('ALTER TABLE expenses DETACH PARTITION %s', part.part_name);
+        EXECUTE format('INSERT INTO expense_archive (id, owner, category_id, expense_date, amount, description) ' ||
+                       'SELECT id, owner, category_id, expense_date, amount, description FROM %s WHERE NOT deleted',
+                       part.part_name);
+        EXECUTE format('DELETE FROM expense_description_keys k USING %s p ' ||
+                       'WHERE NOT p.deleted AND k.owner = p.owner AND k.description = p.description',
+                       part.part_name);
+        EXECUTE format('DROP TABLE %s', part.part_name);
+        archived := archived + 1;
+    END LOOP;
+    RETURN archived;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,14 @@
+-- Partitioning rewrites expenses without the search indexes from V11. On a database that is already past V11
+-- they are rebuilt here; otherwise V11 builds them later. Postgres cannot build an index CONCURRENTLY on a
+-- partitioned table, so this is a plain build.
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')
+            AND EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'btree_gin') THEN
+        CREATE INDEX IF NOT EXISTS idx_expense_description_fts
+            ON expenses USING gin (owner, to_tsvector('simple', description)) WHERE NOT deleted;
+        CREATE INDEX IF NOT EXISTS idx_expense_description_trgm
+            ON expenses USING gin (owner, description gin_trgm_ops) WHERE NOT deleted;
+    END IF;
+END $$;
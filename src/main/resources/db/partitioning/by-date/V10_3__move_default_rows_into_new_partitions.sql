@@ -0,0 +1,46 @@
+-- expenses_create_partitions used to skip, with a warning, any period whose rows had landed in expenses_default,
+-- leaving them there for good. It now creates the partition anyway: expenses_default is detached, the period's
+-- rows are moved into the new partition and expenses_default is attached again. Expenses stay locked
+-- exclusively until the calling transaction ends.
+
+CREATE OR REPLACE FUNCTION expenses_create_partitions(from_date DATE, to_date DATE) RETURNS INTEGER AS $$
+DECLARE
+    unit        CONSTANT TEXT     := '${expense_partition_unit}';
+    step        CONSTANT INTERVAL := CAST('1 ' || unit AS INTERVAL);
+    lower_bound DATE              := CAST(date_trunc(unit, from_date) AS DATE);
+    upper_bound DATE;
+    part_name   TEXT;
+    moved       BIGINT;
+    created     INTEGER           := 0;
+BEGIN
+    WHILE lower_bound <= to_date LOOP
+        upper_bound := CAST(lower_bound + step AS DATE);
+        part_name := 'expenses_' || to_char(lower_bound, CASE unit WHEN 'month' THEN '"y"YYYY"m"MM' ELSE '"y"YYYY' END);
+        IF to_regclass(part_name) IS NULL THEN
+            IF EXISTS (SELECT 1 FROM expenses_default WHERE expense_date >= lower_bound AND expense_date < upper_bound) THEN
+                -- A partition cannot be created while the default partition holds rows it would cover
+                ALTER TABLE expenses DETACH PARTITION expenses_default;
+                EXECUTE format('CREATE TABLE %I PARTITION OF expenses FOR VALUES FROM (%L) TO (%L)',
+                               part_name, lower_bound, upper_bound);
+                -- The rows only change table: keep their change_xid, updated_at and description claims
+                EXECUTE format('ALTER TABLE %I DISABLE TRIGGER USER', part_name);
+                EXECUTE format('INSERT INTO %I SELECT * FROM expenses_default ' ||
+                               'WHERE expense_date >= %L AND expense_date < %L',
+                               part_name, lower_bound, upper_bound);
+                GET DIAGNOSTICS moved = ROW_COUNT;
+                EXECUTE format('ALTER TABLE %I ENABLE TRIGGER USER', part_name);
+                DELETE FROM expenses_default WHERE expense_date >= lower_bound AND expense_date < upper_bound;
+                ALTER TABLE expenses ATTACH PARTITION expenses_default DEFAULT;
+                RAISE NOTICE 'Moved % rows dated % to % from expenses_default into %',
+                             moved, lower_bound, upper_bound, part_name;
+            ELSE
+                EXECUTE format('CREATE TABLE %I PARTITION OF expenses FOR VALUES FROM (%L) TO (%L)',
+                               part_name, lower_bound, upper_bound);
+            END IF;
+            created := created + 1;
+        END IF;
+        lower_bound := upper_bound;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,43 @@
+-- Opt-in: hash-partitions expenses by owner. Enabled by adding classpath:db/partitioning/owner-hash to
+-- spring.flyway.locations (plus spring.flyway.out-of-order=true on a database already past V9).
+-- Rewrites the whole table under an exclusive lock, so run it in a maintenance window. Every expense
+-- must have an owner first: assign unowned rows, or set app.legacy-owner before V8 runs.
+
+LOCK TABLE expenses IN ACCESS EXCLUSIVE MODE;
+
+ALTER TABLE expenses RENAME TO expenses_unpartitioned;
+ALTER TABLE expenses_unpartitioned RENAME CONSTRAINT pk_expenses TO pk_expenses_unpartitioned;
+ALTER INDEX idx_expense_category_date RENAME TO idx_expense_category_date_unpartitioned;
+ALTER INDEX idx_expense_owner_date_id RENAME TO idx_expense_owner_date_id_unpartitioned;
+ALTER INDEX idx_expense_owner_change RENAME TO idx_expense_owner_change_unpartitioned;
+ALTER INDEX uk_expenses_owner_description_live RENAME TO uk_expenses_owner_description_live_unpartitioned;
+
+CREATE TABLE expenses (LIKE expenses_unpartitioned INCLUDING DEFAULTS) PARTITION BY HASH (owner);
+ALTER TABLE expenses ALTER COLUMN owner SET NOT NULL;
+
+DO $$
+BEGIN
+    FOR remainder IN 0..15 LOOP
+        EXECUTE format('CREATE TABLE expenses_p%s PARTITION OF expenses FOR VALUES WITH (MODULUS 16, REMAINDER %s)',
+                       remainder, remainder);
+    END LOOP;
+END $$;
+
+INSERT INTO expenses SELECT * FROM expenses_unpartitioned;
+DROP TABLE expenses_unpartitioned;
+
+-- Keys of a partitioned table must include the partition key
+ALTER TABLE expenses ADD CONSTRAINT pk_expenses PRIMARY KEY (owner, id);
+-- Hibernate updates and deletes by id alone, which no longer prunes to one partition
+CREATE INDEX idx_expense_id ON expenses (id);
+CREATE INDEX idx_expense_category_date ON expenses (category_id, expense_date) INCLUDE (amount);
+CREATE INDEX idx_expense_owner_date_id ON expenses (owner, expense_date, id) INCLUDE (amount, category_id);
+CREATE INDEX idx_expense_owner_change ON expenses (owner, change_xid, id);
+CREATE UNIQUE INDEX uk_expenses_owner_description_live ON expenses (owner, description) WHERE NOT deleted;
+
+ALTER TABLE expenses ADD CONSTRAINT fk_expenses_category
+    FOREIGN KEY (category_id) REFERENCES categories (id) ON DELETE SET NULL;
+
+CREATE TRIGGER trg_expenses_track_change
+    BEFORE INSERT OR UPDATE ON expenses
+    FOR EACH ROW EXECUTE FUNCTION expenses_track_change();
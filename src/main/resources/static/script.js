@@ -1,7 +1,14 @@
 // Global variables
 let currentUser = null;
 let authToken = null;
+let refreshToken = null;
+let refreshInFlight = null;
+// Last body and ETag per GET endpoint, replayed when the server answers 304
+const responseCache = new Map();
 let expenses = [];
+// Local replica of the expenses, kept current through api/expenses/changes
+let expensesById = new Map();
+let expensesWatermark = null;
 let categories = [];
 
 // API Configuration
@@ -44,6 +51,7 @@ function initializeApp() {
     
     if (token && user) {
         authToken = token;
+        refreshToken = localStorage.getItem('refreshToken');
         currentUser = JSON.parse(user);
         showApp();
         // Always hide loading, even if dashboard fails
@@ -126,46 +134,17 @@ async function handleLogin(e) {
         });
 
         if (response.ok) {
-            const responseText = await response.text();
-            
-            // Try to parse as JSON first, then fallback to text
-            let token;
-            try {
-                const jsonResponse = JSON.parse(responseText);
-                
-                // Check if token is in a specific field
-                if (jsonResponse.token) {
-                    token = jsonResponse.token;
-                } else if (jsonResponse.jwt) {
-                    token = jsonResponse.jwt;
-                } else if (jsonResponse.accessToken) {
-                    token = jsonResponse.accessToken;
-                } else {
-                    // If it's a simple object with the token as the value
-                    const keys = Object.keys(jsonResponse);
-                    if (keys.length === 1) {
-                        token = jsonResponse[keys[0]];
-                    } else {
-                        showToast('Invalid response format from server', 'error');
-                        return;
-                    }
-                }
-            } catch (parseError) {
-                token = responseText.trim();
-            }
-            
-            if (!token) {
+            const tokens = await response.json();
+
+            if (!tokens.accessToken) {
                 showToast('No token received from server', 'error');
                 return;
             }
-            
-            authToken = token;
+
             currentUser = { username };
-            
-            // Store in localStorage
-            localStorage.setItem('authToken', token);
+            storeTokens(tokens);
             localStorage.setItem('currentUser', JSON.stringify(currentUser));
-            
+
             showToast('Login successful!', 'success');
             showApp();
             loadDashboard();
@@ -212,10 +191,57 @@ async function handleRegister(e) {
     }
 }
 
+function storeTokens(tokens) {
+    authToken = tokens.accessToken;
+    refreshToken = tokens.refreshToken;
+    localStorage.setItem('authToken', authToken);
+    localStorage.setItem('refreshToken', refreshToken);
+}
+
+// Trades the refresh token for a new pair; concurrent 401s share one refresh call
+function refreshSession() {
+    if (!refreshToken) {
+        return Promise.resolve(false);
+    }
+    if (!refreshInFlight) {
+        refreshInFlight = fetch(`${API_BASE_URL}/api/auth/refresh`, {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify({ refreshToken })
+        })
+            .then(async response => {
+                if (!response.ok) {
+                    return false;
+                }
+                storeTokens(await response.json());
+                return true;
+            })
+            .catch(() => false)
+            .finally(() => { refreshInFlight = null; });
+    }
+    return refreshInFlight;
+}
+
 function handleLogout() {
+    if (authToken || refreshToken) {
+        // Fire and forget: the session ends locally whether or not revocation succeeds
+        fetch(`${API_BASE_URL}/api/auth/logout`, {
+            method: 'POST',
+            headers: {
+                'Content-Type': 'application/json',
+                ...(authToken ? { 'Authorization': `Bearer ${authToken}` } : {})
+            },
+            body: JSON.stringify({ refreshToken })
+        }).catch(() => {});
+    }
     authToken = null;
+    refreshToken = null;
     currentUser = null;
+    responseCache.clear();
+    expensesById = new Map();
+    expensesWatermark = null;
     localStorage.removeItem('authToken');
+    localStorage.removeItem('refreshToken');
     localStorage.removeItem('currentUser');
     showAuth();
     showToast('Logged out successfully', 'info');
@@ -271,14 +297,36 @@ async function apiRequest(endpoint, options = {}) {
         config.headers['Authorization'] = `Bearer ${authToken}`;
     }
 
+    const method = (config.method || 'GET').toUpperCase();
+    const cached = method === 'GET' ? responseCache.get(endpoint) : undefined;
+    if (cached) {
+        config.headers['If-None-Match'] = cached.etag;
+    }
+
     try {
-        const response = await fetch(url, config);
-        
+        let response = await fetch(url, config);
+
+        // Access tokens are short-lived: refresh once and retry before giving up on the session
+        if (response.status === 401 && await refreshSession()) {
+            config.headers['Authorization'] = `Bearer ${authToken}`;
+            response = await fetch(url, config);
+        }
+
         if (response.status === 401) {
             handleLogout();
             return null;
         }
-        
+
+        if (response.status === 304 && cached) {
+            return new Response(cached.body, { status: 200, headers: { 'Content-Type': 'application/json' } });
+        }
+
+        const etag = response.headers.get('ETag');
+        if (method === 'GET' && response.ok && etag) {
+            const body = await response.clone().text();
+            responseCache.set(endpoint, { etag, body });
+        }
+
         return response;
     } catch (error) {
         throw error;
@@ -294,7 +342,7 @@ async function loadDashboard() {
         ]);
         
         updateDashboardStats();
-        updateCategoryChart();
+        await updateCategoryChart();
         updateRecentExpenses();
     } catch (error) {
         showToast('Error loading dashboard', 'error');
@@ -324,15 +372,9 @@ function updateDashboardStats() {
     document.getElementById('recent-count').textContent = recentExpenses.length;
 }
 
-function updateCategoryChart() {
+async function updateCategoryChart() {
     const ctx = document.getElementById('dashboard-category-chart').getContext('2d');
-    const categoryTotals = {};
-    expenses.forEach(expense => {
-        const category = categories.find(c => c.id === expense.categoryId);
-        if (category) {
-            categoryTotals[category.name] = (categoryTotals[category.name] || 0) + expense.amount;
-        }
-    });
+    const categoryTotals = await loadCategoryTotals();
     const labels = Object.keys(categoryTotals);
     const data = Object.values(categoryTotals);
     if (dashboardCategoryChart) {
@@ -404,11 +446,31 @@ function updateRecentExpenses() {
 // Expense Functions
 async function loadExpenses() {
     try {
-        const response = await apiRequest('/api/expenses');
-        if (response && response.ok) {
-            expenses = await response.json();
-            renderExpensesTable();
+        let hasMore = true;
+        while (hasMore) {
+            const query = expensesWatermark ? `?since=${encodeURIComponent(expensesWatermark)}` : '';
+            const response = await apiRequest(`/api/expenses/changes${query}`);
+            if (!response) {
+                return;
+            }
+            if (response.status === 410) {
+                // Too far behind to replay deletes: start over from a full download
+                expensesById = new Map();
+                expensesWatermark = null;
+                continue;
+            }
+            if (!response.ok) {
+                throw new Error(`Sync failed with status ${response.status}`);
+            }
+
+            const changes = await response.json();
+            changes.upserts.forEach(expense => expensesById.set(expense.id, expense));
+            changes.deletedIds.forEach(id => expensesById.delete(id));
+            expensesWatermark = changes.next;
+            hasMore = changes.hasMore;
         }
+        expenses = [...expensesById.values()];
+        renderExpensesTable();
     } catch (error) {
         showToast('Error loading expenses', 'error');
     }
@@ -758,29 +820,51 @@ function clearFilters() {
 }
 
 // Analytics Functions
+// Summaries are aggregated by the server over all time, so charts never need the full expense list
+const SUMMARY_RANGE_START = '1970-01-01';
+
+function summaryRangeEnd() {
+    return new Date().toISOString().slice(0, 10);
+}
+
+async function loadSummary(path, params = '') {
+    const response = await apiRequest(
+        `/api/expenses/summary/${path}?start=${SUMMARY_RANGE_START}&end=${summaryRangeEnd()}${params}`
+    );
+    if (response && response.ok) {
+        return response.json();
+    }
+    return [];
+}
+
+async function loadCategoryTotals() {
+    const summary = await loadSummary('category');
+    const categoryTotals = {};
+    summary.forEach(row => {
+        const category = categories.find(c => c.id === row.categoryId);
+        if (category) {
+            categoryTotals[category.name] = row.total;
+        }
+    });
+    return categoryTotals;
+}
+
 async function loadAnalytics() {
     try {
+        await loadCategories();
+        
         await Promise.all([
-            loadExpenses(),
-            loadCategories()
+            updateCategoryBreakdown(),
+            updateMonthlyTrend()
         ]);
-        
-        updateCategoryBreakdown();
-        updateMonthlyTrend();
     } catch (error) {
         showToast('Error loading analytics', 'error');
     }
 }
 
-function updateCategoryBreakdown() {
+async function updateCategoryBreakdown() {
     const ctx = document.getElementById('category-breakdown-chart').getContext('2d');
-    const categoryTotals = {};
-    expenses.forEach(expense => {
-        const category = categories.find(c => c.id === expense.categoryId);
-        if (category) {
-            categoryTotals[category.name] = (categoryTotals[category.name] || 0) + expense.amount;
-        }
-    });
+    const categoryTotals = await loadCategoryTotals();
     const labels = Object.keys(categoryTotals);
     const data = Object.values(categoryTotals);
     if (categoryBreakdownChart) {
@@ -818,13 +902,12 @@ function updateCategoryBreakdown() {
     });
 }
 
-function updateMonthlyTrend() {
+async function updateMonthlyTrend() {
     const ctx = document.getElementById('monthly-trend-chart').getContext('2d');
+    const summary = await loadSummary('period', '&granularity=month');
     const monthlyData = {};
-    expenses.forEach(expense => {
-        const date = new Date(expense.date);
-        const monthKey = `${date.getFullYear()}-${String(date.getMonth() + 1).padStart(2, '0')}`;
-        monthlyData[monthKey] = (monthlyData[monthKey] || 0) + expense.amount;
+    summary.forEach(row => {
+        monthlyData[row.period.slice(0, 7)] = row.total;
     });
     const labels = Object.keys(monthlyData).sort();
     const data = labels.map(month => monthlyData[month]);
@@ -0,0 +1,50 @@
+package com.expense.tracker.config;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DbConcurrencyLimitFilterTest {
+
+    private final DbConcurrencyLimitFilter filter = new DbConcurrencyLimitFilter(1, Duration.ofMillis(10));
+
+    @Test
+    void asyncRequestHoldsItsPermitUntilComplete() throws Exception {
+        MockHttpServletRequest streaming = apiRequest();
+        streaming.setAsyncSupported(true);
+        FilterChain startsAsync = (request, response) -> request.startAsync();
+
+        filter.doFilter(streaming, new MockHttpServletResponse(), startsAsync);
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(apiRequest(), rejected, new MockFilterChain());
+        assertEquals(503, rejected.getStatus());
+
+        ((MockAsyncContext) streaming.getAsyncContext()).complete();
+
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        filter.doFilter(apiRequest(), admitted, new MockFilterChain());
+        assertEquals(200, admitted.getStatus());
+    }
+
+    @Test
+    void syncRequestReleasesItsPermitOnReturn() throws Exception {
+        filter.doFilter(apiRequest(), new MockHttpServletResponse(), new MockFilterChain());
+
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        filter.doFilter(apiRequest(), admitted, new MockFilterChain());
+        assertEquals(200, admitted.getStatus());
+    }
+
+    /*PRIVATE METHODS*/
+    private static MockHttpServletRequest apiRequest() {
+        return new MockHttpServletRequest("GET", "/api/expenses");
+    }
+}
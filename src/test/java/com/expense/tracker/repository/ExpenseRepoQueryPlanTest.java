@@ -0,0 +1,120 @@
+package com.expense.tracker.repository;
+
+import com.expense.tracker.PostgresIntegrationTest;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Explains every ExpenseRepo query on a table shared by many owners and fails if any of them reads
+ * the expenses table with a sequential scan.
+ */
+class ExpenseRepoQueryPlanTest extends PostgresIntegrationTest {
+
+    private static final int OWNERS = 40;
+    private static final int EXPENSES = 100_000;
+    private static final long FIRST_ID = 10_000_000L;
+    private static final String OWNER = "plan7";
+    private static final int CATEGORY_ID = 10_000_047;
+
+    @TestConfiguration
+    static class RecordingDataSource {
+        @Bean
+        static BeanPostProcessor queryPlanRecorder() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? QueryPlanRecorder.wrap(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private ExpenseRepo expenseRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void seed() {
+        Integer seeded = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM expenses WHERE owner = ?", Integer.class, OWNER);
+        if (seeded != null && seeded > 0) {
+            return;
+        }
+        // Ten categories per owner; category c belongs to owner c % OWNERS, as does every expense filed under it
+        jdbcTemplate.update("INSERT INTO categories (id, name, owner) " +
+                "SELECT ? + g, 'plan category ' || g, 'plan' || (g % ?) FROM generate_series(0, ?) g",
+                (int) FIRST_ID, OWNERS, OWNERS * 10 - 1);
+        jdbcTemplate.update("INSERT INTO expenses (id, amount, description, expense_date, category_id, owner) " +
+                "SELECT ? + g, (g % 500) + 0.99, 'plan expense ' || g, DATE '2021-01-01' + (g % 1460), " +
+                "? + (g % ?), 'plan' || (g % ?) FROM generate_series(0, ?) g",
+                FIRST_ID, (int) FIRST_ID, OWNERS * 10, OWNERS, EXPENSES - 1);
+        jdbcTemplate.execute("ANALYZE categories, expenses, expense_archive");
+    }
+
+    @Test
+    void noExpenseRepoQueryScansTheWholeExpensesTable() {
+        LocalDate start = LocalDate.of(2022, 3, 1);
+        LocalDate end = LocalDate.of(2022, 3, 31);
+        List<Runnable> queries = List.of(
+                () -> expenseRepo.findByIdAndOwner(FIRST_ID + 7, OWNER),
+                () -> expenseRepo.findAllDTOs(OWNER),
+                () -> expenseRepo.findByCategoryId(OWNER, CATEGORY_ID),
+                () -> expenseRepo.findByDateRange(OWNER, start, end),
+                () -> {
+                    try (Stream<?> rows = expenseRepo.streamByDateRange(OWNER, start, end)) {
+                        rows.forEach(row -> {});
+                    }
+                },
+                () -> expenseRepo.findExistingDescriptions(OWNER, List.of("plan expense 7", "plan expense 47")),
+                () -> expenseRepo.summarizeByCategory(OWNER, start, end),
+                () -> expenseRepo.summarizeByPeriod(OWNER, "month", start, end),
+                () -> expenseRepo.findFirstPage(OWNER, PageRequest.of(0, 20)),
+                () -> expenseRepo.findPageAfter(OWNER, end, FIRST_ID + 47, PageRequest.of(0, 20))
+        );
+
+        for (Runnable query : queries) {
+            List<QueryPlanRecorder.Plan> plans = QueryPlanRecorder.record(
+                    () -> transactionTemplate.executeWithoutResult(status -> query.run()));
+
+            assertEquals(1, plans.size(), "expected one explained query per repository call");
+            QueryPlanRecorder.Plan plan = plans.getFirst();
+            assertTrue(seqScansOfExpenses(plan.root()).isEmpty(),
+                    () -> "Seq Scan on expenses for: " + plan.sql() + "\n" + plan.root().toPrettyString());
+        }
+    }
+
+    /*PRIVATE METHODS*/
+    private static List<JsonNode> seqScansOfExpenses(JsonNode node) {
+        List<JsonNode> scans = new ArrayList<>();
+        if ("Seq Scan".equals(node.path("Node Type").asText())
+                && node.path("Relation Name").asText().startsWith("expenses")) {
+            scans.add(node);
+        }
+        for (JsonNode child : node.path("Plans")) {
+            scans.addAll(seqScansOfExpenses(child));
+        }
+        return scans;
+    }
+}
@@ -0,0 +1,107 @@
+package com.expense.tracker.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Wraps a DataSource so that, while recording, every query run through a prepared statement is first
+ * explained with the same SQL and the same bound parameters.
+ */
+final class QueryPlanRecorder {
+
+    record Plan(String sql, JsonNode root) {}
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final List<Plan> PLANS = new ArrayList<>();
+    private static volatile boolean recording;
+
+    private QueryPlanRecorder() {}
+
+    static DataSource wrap(DataSource dataSource) {
+        return proxy(DataSource.class, dataSource, (method, args, result) ->
+                method.getName().equals("getConnection") ? wrapConnection((Connection) result) : result);
+    }
+
+    static synchronized List<Plan> record(Runnable queries) {
+        PLANS.clear();
+        recording = true;
+        try {
+            queries.run();
+        } finally {
+            recording = false;
+        }
+        return List.copyOf(PLANS);
+    }
+
+    /*PRIVATE METHODS*/
+    private interface AfterCall {
+        Object apply(Method method, Object[] args, Object result) throws Exception;
+    }
+
+    private static Connection wrapConnection(Connection connection) {
+        return proxy(Connection.class, connection, (method, args, result) ->
+                method.getName().equals("prepareStatement")
+                        ? wrapStatement(connection, (String) args[0], (PreparedStatement) result)
+                        : result);
+    }
+
+    private static PreparedStatement wrapStatement(Connection connection, String sql, PreparedStatement statement) {
+        List<Object[]> setters = new ArrayList<>();
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                setters.add(new Object[]{method, args});
+            } else if (method.getName().equals("clearParameters")) {
+                setters.clear();
+            } else if (method.getName().equals("executeQuery") && (args == null || args.length == 0) && recording) {
+                explain(connection, sql, setters);
+            }
+            return invoke(method, statement, args);
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(
+                QueryPlanRecorder.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, handler);
+    }
+
+    private static void explain(Connection connection, String sql, List<Object[]> setters) throws Exception {
+        String statement = sql.strip().toLowerCase(Locale.ROOT);
+        if (!statement.startsWith("select") && !statement.startsWith("with")) {
+            return;
+        }
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN (FORMAT JSON) " + sql)) {
+            for (Object[] setter : setters) {
+                invoke((Method) setter[0], explain, (Object[]) setter[1]);
+            }
+            try (ResultSet plan = explain.executeQuery()) {
+                plan.next();
+                synchronized (QueryPlanRecorder.class) {
+                    PLANS.add(new Plan(sql, JSON.readTree(plan.getString(1)).get(0).get("Plan")));
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, AfterCall afterCall) {
+        return (T) Proxy.newProxyInstance(QueryPlanRecorder.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> afterCall.apply(method, args, invoke(method, target, args)));
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Exception {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.expense.tracker.service;
+
+import com.expense.tracker.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExpenseIdAllocatorTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private ExpenseIdAllocator idAllocator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void drawsOneSequenceValuePerBlockOfIds() {
+        idAllocator.allocate(1);
+        long before = lastValue();
+
+        List<Long> ids = idAllocator.allocate(120);
+
+        assertEquals(150, lastValue() - before, "120 ids need three blocks of 50");
+        assertEquals(120, new HashSet<>(ids).size());
+        // The blocks follow each other, so the ids run on from the value the sequence had
+        assertEquals(before + 1, ids.getFirst());
+        assertEquals(before + 120, ids.getLast());
+    }
+
+    /*PRIVATE METHODS*/
+    private long lastValue() {
+        return jdbcTemplate.queryForObject("SELECT last_value FROM expenses_seq", Long.class);
+    }
+}
@@ -0,0 +1,220 @@
+package com.expense.tracker.service;
+
+import com.expense.tracker.service.ExpenseIngestLog.Entry;
+import com.expense.tracker.service.ExpenseIngestLog.Position;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpenseIngestLogTest {
+
+    // Two records of RECORD_BYTES fit a segment, with room left for the next-segment marker
+    private static final int SEGMENT_BYTES = 64;
+    private static final int RECORD_BYTES = 8 + 20;
+    private static final Position START = new Position(0, 0);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void readsBackWhatWasAppendedAfterReopening() throws IOException {
+        try (ExpenseIngestLog log = open()) {
+            log.append(record("a"));
+            log.append(record("b"));
+        }
+
+        try (ExpenseIngestLog log = open()) {
+            List<Entry> entries = log.read(log.checkpoint(), 10);
+            assertEquals(List.of("a", "b"), payloads(entries));
+            assertEquals(new Position(0, 2 * RECORD_BYTES), entries.getLast().next());
+        }
+    }
+
+    @Test
+    void cutsOffATornRecord() throws IOException {
+        try (ExpenseIngestLog log = open()) {
+            log.append(record("a"));
+            log.append(record("b"));
+        }
+        // The length of the second record reached the disk but the end of its payload did not
+        overwrite(segment(0), RECORD_BYTES + 8 + 10, new byte[10]);
+
+        assertReopensWithOnly("a");
+    }
+
+    @Test
+    void cutsOffARecordWithABadChecksum() throws IOException {
+        try (ExpenseIngestLog log = open()) {
+            log.append(record("a"));
+            log.append(record("b"));
+        }
+        overwrite(segment(0), RECORD_BYTES + 4, ByteBuffer.allocate(4).putInt(0xBAD).array());
+
+        assertReopensWithOnly("a");
+    }
+
+    @Test
+    void rollsOverToTheNextSegment() throws IOException {
+        try (ExpenseIngestLog log = open()) {
+            for (String name : List.of("a", "b", "c", "d", "e")) {
+                log.append(record(name));
+            }
+            assertTrue(Files.exists(segment(2)));
+
+            List<Entry> entries = log.read(START, 10);
+            assertEquals(List.of("a", "b", "c", "d", "e"), payloads(entries));
+            assertEquals(new Position(1, RECORD_BYTES), entries.get(2).next());
+        }
+
+        try (ExpenseIngestLog log = open()) {
+            assertEquals(List.of("a", "b", "c", "d", "e"), payloads(log.read(START, 10)));
+        }
+    }
+
+    @Test
+    void recoversACrashBetweenTheNextSegmentMarkerAndTheNextSegment() throws IOException {
+        try (ExpenseIngestLog log = open()) {
+            log.append(record("a"));
+        }
+        // The marker reached the disk but the next segment was never created
+        overwrite(segment(0), RECORD_BYTES, ByteBuffer.allocate(4).putInt(-1).array());
+        assertFalse(Files.exists(segment(1)));
+
+        try (ExpenseIngestLog log = open()) {
+            assertTrue(Files.exists(segment(1)));
+            log.append(record("b"));
+
+            List<Entry> entries = log.read(START, 10);
+            assertEquals(List.of("a", "b"), payloads(entries));
+            assertEquals(new Position(1, RECORD_BYTES), entries.getLast().next());
+        }
+    }
+
+    @Test
+    void resumesFromTheCommittedCheckpoint() throws IOException {
+        Position committed;
+        try (ExpenseIngestLog log = open()) {
+            log.append(record("a"));
+            log.append(record("b"));
+            committed = log.read(START, 1).getFirst().next();
+            log.commit(committed);
+        }
+
+        try (ExpenseIngestLog log = open()) {
+            assertEquals(committed, log.checkpoint());
+            assertEquals(List.of("b"), payloads(log.read(log.checkpoint(), 10)));
+        }
+    }
+
+    @Test
+    void replaysFromTheStartAfterATornCheckpoint() throws IOException {
+        try (ExpenseIngestLog log = open()) {
+            log.append(record("a"));
+            log.append(record("b"));
+            log.commit(log.read(START, 1).getFirst().next());
+        }
+        overwrite(directory.resolve("checkpoint"), 8, new byte[] {1});
+
+        try (ExpenseIngestLog log = open()) {
+            assertEquals(START, log.checkpoint());
+            assertEquals(List.of("a", "b"), payloads(log.read(log.checkpoint(), 10)));
+        }
+    }
+
+    @Test
+    void replaysFromTheStartAfterAShortCheckpoint() throws IOException {
+        try (ExpenseIngestLog log = open()) {
+            log.append(record("a"));
+            log.commit(log.read(START, 1).getFirst().next());
+        }
+        try (FileChannel checkpoint = FileChannel.open(directory.resolve("checkpoint"), WRITE)) {
+            checkpoint.truncate(6);
+        }
+
+        try (ExpenseIngestLog log = open()) {
+            assertEquals(START, log.checkpoint());
+        }
+    }
+
+    @Test
+    void commitDeletesTheSegmentsBeforeIt() throws IOException {
+        Position committed;
+        try (ExpenseIngestLog log = open()) {
+            for (String name : List.of("a", "b", "c", "d", "e")) {
+                log.append(record(name));
+            }
+            // Past c, segment 1 still holds d
+            committed = log.read(START, 3).getLast().next();
+            log.commit(committed);
+
+            assertFalse(Files.exists(segment(0)));
+            assertTrue(Files.exists(segment(1)));
+            assertEquals(List.of("d", "e"), payloads(log.read(committed, 10)));
+
+            // Past e, nothing in segment 1 is needed any more
+            committed = log.read(committed, 2).getLast().next();
+            log.commit(committed);
+
+            assertFalse(Files.exists(segment(1)));
+            assertTrue(Files.exists(segment(2)));
+        }
+
+        try (ExpenseIngestLog log = open()) {
+            assertEquals(committed, log.checkpoint());
+            assertTrue(log.read(log.checkpoint(), 10).isEmpty());
+            log.append(record("f"));
+            assertEquals(List.of("f"), payloads(log.read(log.checkpoint(), 10)));
+        }
+    }
+
+    /*PRIVATE METHODS*/
+    private ExpenseIngestLog open() throws IOException {
+        return new ExpenseIngestLog(directory, SEGMENT_BYTES);
+    }
+
+    private void assertReopensWithOnly(String survivor) throws IOException {
+        try (ExpenseIngestLog log = open()) {
+            assertEquals(List.of(survivor), payloads(log.read(START, 10)));
+
+            // The next append takes the place of the record that was cut off
+            log.append(record("c"));
+            List<Entry> entries = log.read(START, 10);
+            assertEquals(List.of(survivor, "c"), payloads(entries));
+            assertEquals(new Position(0, 2 * RECORD_BYTES), entries.getLast().next());
+        }
+    }
+
+    // Payloads are padded to 20 bytes so that records have a known size
+    private static byte[] record(String name) {
+        return String.format("%-20s", name).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static List<String> payloads(List<Entry> entries) {
+        return entries.stream()
+                .map(entry -> new String(entry.payload(), StandardCharsets.US_ASCII).strip())
+                .toList();
+    }
+
+    private Path segment(long index) {
+        return directory.resolve("segment-" + String.format("%020d", index) + ".log");
+    }
+
+    private static void overwrite(Path file, long position, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), position);
+            channel.force(false);
+        }
+    }
+}
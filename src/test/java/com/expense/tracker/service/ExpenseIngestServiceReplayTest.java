@@ -0,0 +1,92 @@
+package com.expense.tracker.service;
+
+import com.expense.tracker.PostgresIntegrationTest;
+import com.expense.tracker.dto.IngestReceiptDTO;
+import com.expense.tracker.dto.NewExpenseDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A checkpoint lost after a batch was stored replays that batch from the log; its receipts must keep it
+ * from being stored a second time.
+ */
+@WithMockUser(username = ExpenseIngestServiceReplayTest.OWNER)
+class ExpenseIngestServiceReplayTest extends PostgresIntegrationTest {
+
+    static final String OWNER = "ingest-replay";
+    private static final int CATEGORY_ID = 21_000_000;
+    private static final Path DIRECTORY = createDirectory();
+
+    @Autowired
+    private ExpenseIngestService ingestService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void ingest(DynamicPropertyRegistry registry) {
+        registry.add("app.ingest.enabled", () -> "true");
+        registry.add("app.ingest.directory", DIRECTORY::toString);
+        registry.add("app.ingest.poll-interval", () -> "20ms");
+    }
+
+    @Test
+    void replayedBatchIsNotStoredTwice() throws Exception {
+        jdbcTemplate.update("INSERT INTO categories (id, name, owner) VALUES (?, 'replayed', ?)", CATEGORY_ID, OWNER);
+        IngestReceiptDTO queued = ingestService.enqueue(
+                new NewExpenseDTO(new BigDecimal("12.50"), "replayed expense", LocalDate.of(2024, 3, 1), CATEGORY_ID));
+        awaitStored(queued.trackingId());
+        IngestReceiptDTO stored = ingestService.getStatus(queued.trackingId());
+
+        // Restart as after a crash that tore the checkpoint: the whole log is pending again
+        ingestService.destroy();
+        Files.delete(DIRECTORY.resolve("checkpoint"));
+        ingestService.start();
+        assertEquals(1, ingestService.getQueueStatus().pending());
+        await(() -> ingestService.getQueueStatus().pending() == 0);
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM expenses WHERE owner = ?", Integer.class, OWNER));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM expense_ingest_receipts WHERE owner = ?", Integer.class, OWNER));
+        assertEquals(stored, ingestService.getStatus(queued.trackingId()));
+    }
+
+    /*PRIVATE METHODS*/
+    private void awaitStored(String trackingId) throws InterruptedException {
+        await(() -> ExpenseIngestService.STORED.equals(ingestService.getStatus(trackingId).status()));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(10));
+        while (!condition.getAsBoolean()) {
+            assertTrue(Instant.now().isBefore(deadline), "Timed out waiting for the ingestion queue");
+            Thread.sleep(20);
+        }
+    }
+
+    private static Path createDirectory() {
+        try {
+            return Files.createTempDirectory("expense-ingest");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
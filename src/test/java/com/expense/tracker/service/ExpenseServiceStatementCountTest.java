@@ -0,0 +1,81 @@
+package com.expense.tracker.service;
+
+import com.expense.tracker.PostgresIntegrationTest;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * The list reads project straight into DTOs, so each must cost one statement however many expenses
+ * and categories it returns.
+ */
+@WithMockUser(username = ExpenseServiceStatementCountTest.OWNER)
+class ExpenseServiceStatementCountTest extends PostgresIntegrationTest {
+
+    static final String OWNER = "stmt-count";
+    private static final int FIRST_CATEGORY_ID = 20_000_000;
+    private static final long FIRST_EXPENSE_ID = 20_000_000L;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void seed() {
+        Integer seeded = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM expenses WHERE owner = ?", Integer.class, OWNER);
+        if (seeded != null && seeded > 0) {
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO categories (id, name, owner) " +
+                "SELECT ? + g, 'category ' || g, ? FROM generate_series(0, 4) g",
+                FIRST_CATEGORY_ID, OWNER);
+        jdbcTemplate.update("INSERT INTO expenses (id, amount, description, expense_date, category_id, owner) " +
+                "SELECT ? + g, g + 0.50, 'expense ' || g, DATE '2024-01-01' + g, ? + (g % 5), ? " +
+                "FROM generate_series(0, 59) g",
+                FIRST_EXPENSE_ID, FIRST_CATEGORY_ID, OWNER);
+    }
+
+    @Test
+    void getAllExpensesRunsOneStatement() {
+        assertOneStatement(() -> expenseService.getAllExpenses());
+    }
+
+    @Test
+    void getExpensesByCategoryIdRunsOneStatement() {
+        assertOneStatement(() -> expenseService.getExpensesByCategoryId(FIRST_CATEGORY_ID));
+    }
+
+    @Test
+    void getExpenseBetweenRunsOneStatement() {
+        assertOneStatement(() -> expenseService.getExpenseBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)));
+    }
+
+    /*PRIVATE METHODS*/
+    private void assertOneStatement(Supplier<List<?>> read) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<?> expenses = read.get();
+
+        assertFalse(expenses.isEmpty());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,87 @@
+package com.expense.tracker.service;
+
+import com.expense.tracker.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@WithMockUser(username = IdempotencyServiceTest.OWNER)
+class IdempotencyServiceTest extends PostgresIntegrationTest {
+
+    static final String OWNER = "idempotency";
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void retryReplaysTheStoredResponse() {
+        ResponseEntity<?> first = idempotencyService.execute("replay", "create", Map.of("amount", 10), created());
+        ResponseEntity<?> retry = idempotencyService.execute("replay", "create", Map.of("amount", 10), created());
+
+        assertEquals(1, calls.get());
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(URI.create("/api/expenses/1"), retry.getHeaders().getLocation());
+        assertEquals("{\"id\":1}", retry.getBody());
+    }
+
+    @Test
+    void differentRequestWithTheSameKeyIsRefused() {
+        idempotencyService.execute("mismatch", "create", Map.of("amount", 10), created());
+
+        assertThrows(IllegalStateException.class,
+                () -> idempotencyService.execute("mismatch", "create", Map.of("amount", 20), created()));
+        // The same body sent to another endpoint is a different request too
+        assertThrows(IllegalStateException.class,
+                () -> idempotencyService.execute("mismatch", "import", Map.of("amount", 10), created()));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void failedRequestReleasesTheKey() {
+        assertThrows(IllegalArgumentException.class,
+                () -> idempotencyService.execute("released", "create", Map.of("amount", 10), () -> {
+                    calls.incrementAndGet();
+                    throw new IllegalArgumentException("Category with given ID doesn't exist!");
+                }));
+        assertEquals(List.of(), jdbcTemplate.queryForList(
+                "SELECT idempotency_key FROM idempotency_keys WHERE owner = ? AND idempotency_key = 'released'",
+                String.class, OWNER));
+
+        ResponseEntity<?> retry = idempotencyService.execute("released", "create", Map.of("amount", 10), created());
+
+        assertEquals(2, calls.get());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertNull(retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    /*PRIVATE METHODS*/
+    private Callable<ResponseEntity<?>> created() {
+        return () -> {
+            calls.incrementAndGet();
+            HttpHeaders headers = new HttpHeaders();
+            headers.setLocation(URI.create("/api/expenses/1"));
+            return new ResponseEntity<>(Map.of("id", 1), headers, HttpStatus.CREATED);
+        };
+    }
+}